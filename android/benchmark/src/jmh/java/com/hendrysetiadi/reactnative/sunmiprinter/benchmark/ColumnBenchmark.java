@@ -0,0 +1,100 @@
+package com.hendrysetiadi.reactnative.sunmiprinter.benchmark;
+
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.ColumnEncoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Column mode (ESC *) conversion on the calling thread against the parallel band conversion and the
+ * previous per-column implementation (ColumnEncoderTest checks both conversions are byte identical)
+ */
+@State(Scope.Benchmark)
+public class ColumnBenchmark {
+  @Param({"384", "576"})
+  public int width;
+
+  @Param({"240", "1200", "1201"})
+  public int height;
+
+  @Param({"0", "33"})
+  public int mode;
+
+  private int[] image;
+
+  @Setup
+  public void setup() {
+    image = new int[width * height];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int gray = ((x * 255) / width + ((x / 8 + y / 8) % 2) * 64) & 0xFF;
+        image[y * width + x] = 0xFF000000 | (gray << 16) | (gray << 8) | gray;
+      }
+    }
+  }
+
+  @Benchmark
+  public byte[] sequential() {
+    return ColumnEncoder.encode(image, width, height, mode, false);
+  }
+
+  @Benchmark
+  public byte[] parallel() {
+    return ColumnEncoder.encode(image, width, height, mode, true);
+  }
+
+  @Benchmark
+  public byte[] legacy() {
+    return legacyEncode(image, width, height, mode);
+  }
+
+  // Previous BytesUtil.getBytesFromBitMap(bitmap, mode) loop: gray value of every pixel computed in column order
+  private static byte[] legacyEncode(int[] pixels, int width, int height, int mode) {
+    if (mode == 0 || mode == 1) {
+      byte[] res = new byte[width * height / 8 + 5 * height / 8];
+      for (int i = 0; i < height / 8; i++) {
+        res[i * (width + 5)] = 0x1b;
+        res[1 + i * (width + 5)] = 0x2a;
+        res[2 + i * (width + 5)] = (byte) mode;
+        res[3 + i * (width + 5)] = (byte) (width % 256);
+        res[4 + i * (width + 5)] = (byte) (width / 256);
+        for (int j = 0; j < width; j++) {
+          byte gray = 0;
+          for (int m = 0; m < 8; m++) {
+            int clr = pixels[j + width * (i * 8 + m)];
+            gray = (byte) ((rgb2Gray((clr >> 16) & 0xff, (clr >> 8) & 0xff, clr & 0xff) << (7 - m)) | gray);
+          }
+          res[5 + j + i * (width + 5)] = gray;
+        }
+      }
+      return res;
+    }
+
+    byte[] res = new byte[width * height / 8 + 5 * height / 24];
+    for (int i = 0; i < height / 24; i++) {
+      res[i * (width * 3 + 5)] = 0x1b;
+      res[1 + i * (width * 3 + 5)] = 0x2a;
+      res[2 + i * (width * 3 + 5)] = (byte) mode;
+      res[3 + i * (width * 3 + 5)] = (byte) (width % 256);
+      res[4 + i * (width * 3 + 5)] = (byte) (width / 256);
+      for (int j = 0; j < width; j++) {
+        for (int n = 0; n < 3; n++) {
+          byte gray = 0;
+          for (int m = 0; m < 8; m++) {
+            int clr = pixels[j + width * (i * 24 + m + n * 8)];
+            gray = (byte) ((rgb2Gray((clr >> 16) & 0xff, (clr >> 8) & 0xff, clr & 0xff) << (7 - m)) | gray);
+          }
+          res[5 + j * 3 + i * (width * 3 + 5) + n] = gray;
+        }
+      }
+    }
+    return res;
+  }
+
+  private static byte rgb2Gray(int r, int g, int b) {
+    return (int) (0.29900 * r + 0.58700 * g + 0.11400 * b) < 200 ? (byte) 1 : (byte) 0;
+  }
+}
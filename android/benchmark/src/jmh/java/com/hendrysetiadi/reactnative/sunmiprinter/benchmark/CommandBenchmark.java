@@ -0,0 +1,85 @@
+package com.hendrysetiadi.reactnative.sunmiprinter.benchmark;
+
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.BarcodeRasterizer;
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.BytesUtil;
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.ESCUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Single command generation: QR code / barcode commands, byte merging and hex parsing
+ */
+@State(Scope.Benchmark)
+public class CommandBenchmark {
+  private static final String QR_DATA = "https://example.com/receipt/2024/000123456?store=42&till=7";
+  private static final String BARCODE_DATA = "{B0123456789ABC";
+
+  private byte[] small1;
+  private byte[] small2;
+  private byte[][] receiptParts;
+  private String hex;
+  private byte[] hexBytes;
+
+  @Setup
+  public void setup() {
+    small1 = ESCUtil.alignCenter();
+    small2 = ESCUtil.boldOn();
+
+    receiptParts = new byte[][]{
+      ESCUtil.init_printer(), ESCUtil.alignCenter(), ESCUtil.boldOn(), "STORE NAME\n".getBytes(),
+      ESCUtil.boldOff(), ESCUtil.alignLeft(), "Item 1          2 x 10.00   20.00\n".getBytes(),
+      "Item 2          1 x  5.50    5.50\n".getBytes(), ESCUtil.nextLine(3), ESCUtil.cutter()
+    };
+
+    hexBytes = BytesUtil.getMeituanBill();
+    hex = BytesUtil.getHexStringFromBytes(hexBytes);
+  }
+
+  @Benchmark
+  public byte[] qrCode() {
+    return ESCUtil.getPrintQRCode(QR_DATA, 8, 1);
+  }
+
+  @Benchmark
+  public byte[] doubleQrCodeRaster() {
+    return ESCUtil.getPrintDoubleQRCode(QR_DATA, QR_DATA, 160);
+  }
+
+  @Benchmark
+  public byte[] tripleQrCodeRaster() {
+    return ESCUtil.getPrintMultiQRCode(new String[]{QR_DATA, QR_DATA, QR_DATA}, 120, 24);
+  }
+
+  @Benchmark
+  public byte[] barcode() {
+    return ESCUtil.getPrintBarCode(BARCODE_DATA, 8, 162, 2, 2);
+  }
+
+  @Benchmark
+  public byte[] barcodeRaster() {
+    return BarcodeRasterizer.rasterCommand(BARCODE_DATA, BarcodeRasterizer.CODE128, 162, 2, 576);
+  }
+
+  @Benchmark
+  public byte[] byteMergerPair() {
+    return BytesUtil.byteMerger(small1, small2);
+  }
+
+  @Benchmark
+  public byte[] byteMergerList() {
+    return BytesUtil.byteMerger(receiptParts);
+  }
+
+  @Benchmark
+  public byte[] hexToBytes() {
+    return BytesUtil.getBytesFromHexString(hex);
+  }
+
+  @Benchmark
+  public String bytesToHex() {
+    return BytesUtil.getHexStringFromBytes(hexBytes);
+  }
+}
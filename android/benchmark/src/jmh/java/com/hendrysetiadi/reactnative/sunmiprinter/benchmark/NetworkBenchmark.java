@@ -0,0 +1,107 @@
+package com.hendrysetiadi.reactnative.sunmiprinter.benchmark;
+
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.EscPosWriter;
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.NetworkPrinterPool;
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.NetworkTransport;
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.TextLayout;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Raw print job fanned out to network printers, the same path as printToNetwork() in the module
+ * Each printer is a local socket server draining the data, standing in for a raw TCP (port 9100) printer
+ */
+@State(Scope.Benchmark)
+public class NetworkBenchmark {
+  private static final int[] WIDTHS = {3, 1, 1};
+  private static final int[] ALIGNMENTS = {0, 2, 2};
+
+  @Param({"1", "3"})
+  public int printers;
+
+  @Param({"50"})
+  public int items;
+
+  private String[][] rows;
+  private final List<ServerSocketChannel> servers = new ArrayList<>();
+  private final List<InetSocketAddress> addresses = new ArrayList<>();
+  private NetworkPrinterPool pool;
+
+  @Setup
+  public void setup() throws IOException {
+    rows = new String[items][];
+    for (int i = 0; i < items; i++) {
+      rows[i] = new String[]{"Item number " + i, String.valueOf(i % 5 + 1), (i * 3 + 1) + ".50"};
+    }
+    for (int i = 0; i < printers; i++) {
+      final ServerSocketChannel server = ServerSocketChannel.open();
+      server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+      servers.add(server);
+      addresses.add((InetSocketAddress) server.getLocalAddress());
+      Thread sink = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          drain(server);
+        }
+      }, "PrinterSink" + i);
+      sink.setDaemon(true);
+      sink.start();
+    }
+    pool = new NetworkPrinterPool(1024 * 1024, 5000, 60000);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    pool.close();
+    for (ServerSocketChannel server : servers) {
+      server.close();
+    }
+  }
+
+  private static void drain(ServerSocketChannel server) {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+    while (server.isOpen()) {
+      try (SocketChannel channel = server.accept()) {
+        while (channel.read(buffer) >= 0) {
+          buffer.clear();
+        }
+      } catch (IOException e) {
+        // printer closed, accept the next connection
+      }
+    }
+  }
+
+  @Benchmark
+  public int printJob() throws IOException {
+    try (NetworkTransport transport = new NetworkTransport(pool, addresses, 576, 10000)) {
+      int lineChars = TextLayout.columnsPerLine(transport.getPaperDots(), 1);
+      EscPosWriter writer = EscPosWriter.obtain();
+      try {
+        writer.init().align(1).characterSize(2, 2).text("KITCHEN").newLine().characterSize(1, 1).align(0);
+        for (String[] row : rows) {
+          writer.tableRow(row, WIDTHS, ALIGNMENTS, lineChars);
+        }
+        writer.feed(3).cut();
+        transport.write(writer.buffer(), 0, writer.size());
+        transport.flush();
+        return writer.size();
+      } finally {
+        writer.recycle();
+      }
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package com.hendrysetiadi.reactnative.sunmiprinter.benchmark;
+
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.RasterEncoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Raster conversion of a full receipt width image (58mm = 384 dots, 80mm = 576 dots)
+ * Runs the same strip loop as BytesUtil.writeRasterBitmap(), the pixels are already in memory
+ * in place of Bitmap.getPixels()
+ */
+@State(Scope.Benchmark)
+public class RasterBenchmark {
+  private static final int HEIGHT = 256;
+  private static final int STRIP_ROWS = 32;
+
+  @Param({"384", "576"})
+  public int width;
+
+  @Param({"0", "1", "2", "3"})
+  public int ditherMode;
+
+  private int[] image;
+
+  @Setup
+  public void setup() {
+    image = new int[width * HEIGHT];
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < width; x++) {
+        // Gradient with a checker pattern, so both the threshold and the dithering paths get mixed input
+        int gray = ((x * 255) / width + ((x / 8 + y / 8) % 2) * 64) & 0xFF;
+        image[y * width + x] = 0xFF000000 | (gray << 16) | (gray << 8) | gray;
+      }
+    }
+  }
+
+  @Benchmark
+  public byte[] rasterize() {
+    int bw = RasterEncoder.bytesPerRow(width);
+    byte[] dst = new byte[HEIGHT * bw + 4];
+    RasterEncoder.writeRasterHeader(dst, 0, bw, HEIGHT);
+
+    int[] pixels = new int[width * STRIP_ROWS];
+    RasterEncoder encoder = new RasterEncoder(width, ditherMode);
+    int rowOffset = 4;
+    for (int y = 0; y < HEIGHT; y += STRIP_ROWS) {
+      int rows = Math.min(STRIP_ROWS, HEIGHT - y);
+      System.arraycopy(image, y * width, pixels, 0, rows * width);
+      for (int i = 0; i < rows; i++) {
+        encoder.encodeRow(pixels, i * width, dst, rowOffset);
+        rowOffset += bw;
+      }
+    }
+    return dst;
+  }
+
+  @Benchmark
+  public byte[] packRows() {
+    int bw = RasterEncoder.bytesPerRow(width);
+    byte[] dst = new byte[HEIGHT * bw];
+    for (int y = 0; y < HEIGHT; y++) {
+      RasterEncoder.packRow(image, y * width, width, dst, y * bw);
+    }
+    return dst;
+  }
+}
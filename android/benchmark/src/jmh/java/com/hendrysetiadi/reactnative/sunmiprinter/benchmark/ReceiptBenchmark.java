@@ -0,0 +1,97 @@
+package com.hendrysetiadi.reactnative.sunmiprinter.benchmark;
+
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.BytesUtil;
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.ESCUtil;
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.EscPosWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Full receipt assembly: header, item table, totals, barcode and QR code
+ * Compares the growable EscPosWriter (printRawDocument) against chaining ESCUtil commands with byteMerger
+ */
+@State(Scope.Benchmark)
+public class ReceiptBenchmark {
+  private static final int LINE_CHARS = 32;
+  private static final int[] WIDTHS = {3, 1, 1};
+  private static final int[] ALIGNMENTS = {0, 2, 2};
+
+  @Param({"10", "50"})
+  public int items;
+
+  private String[][] rows;
+
+  @Setup
+  public void setup() {
+    rows = new String[items][];
+    for (int i = 0; i < items; i++) {
+      rows[i] = new String[]{"Item number " + i, String.valueOf(i % 5 + 1), (i * 3 + 1) + ".50"};
+    }
+  }
+
+  @Benchmark
+  public byte[] escPosWriter() {
+    return writeReceipt(new EscPosWriter());
+  }
+
+  @Benchmark
+  public byte[] pooledEscPosWriter() {
+    EscPosWriter writer = EscPosWriter.obtain();
+    try {
+      return writeReceipt(writer);
+    } finally {
+      writer.recycle();
+    }
+  }
+
+  private byte[] writeReceipt(EscPosWriter writer) {
+    writer.init()
+      .align(1).characterSize(2, 2).bold(true).text("STORE NAME").newLine()
+      .characterSize(1, 1).bold(false).text("Jl. Example No. 1, Jakarta").newLine()
+      .align(0);
+    for (String[] row : rows) {
+      writer.tableRow(row, WIDTHS, ALIGNMENTS, LINE_CHARS);
+    }
+    writer.tableRow(new String[]{"TOTAL", "", "123.50"}, WIDTHS, ALIGNMENTS, LINE_CHARS)
+      .align(1)
+      .barcode("{B0123456789ABC", 8, 162, 2, 2)
+      .qrCode("https://example.com/receipt/000123456", 8, 1)
+      .feed(3)
+      .cut();
+    return writer.toByteArray();
+  }
+
+  @Benchmark
+  public byte[] byteMergerChain() throws UnsupportedEncodingException {
+    byte[] data = BytesUtil.byteMerger(ESCUtil.init_printer(), ESCUtil.alignCenter());
+    data = BytesUtil.byteMerger(data, ESCUtil.boldOn());
+    data = BytesUtil.byteMerger(data, "STORE NAME\n".getBytes("GB18030"));
+    data = BytesUtil.byteMerger(data, ESCUtil.boldOff());
+    data = BytesUtil.byteMerger(data, "Jl. Example No. 1, Jakarta\n".getBytes("GB18030"));
+    data = BytesUtil.byteMerger(data, ESCUtil.alignLeft());
+    for (String[] row : rows) {
+      String line = pad(row[0], 18) + pad(row[1], 6) + pad(row[2], 8) + "\n";
+      data = BytesUtil.byteMerger(data, line.getBytes("GB18030"));
+    }
+    data = BytesUtil.byteMerger(data, ESCUtil.alignCenter());
+    data = BytesUtil.byteMerger(data, ESCUtil.getPrintBarCode("{B0123456789ABC", 8, 162, 2, 2));
+    data = BytesUtil.byteMerger(data, ESCUtil.getPrintQRCode("https://example.com/receipt/000123456", 8, 1));
+    data = BytesUtil.byteMerger(data, ESCUtil.nextLine(3));
+    return BytesUtil.byteMerger(data, ESCUtil.cutter());
+  }
+
+  private static String pad(String text, int width) {
+    StringBuilder sb = new StringBuilder(width);
+    sb.append(text, 0, Math.min(text.length(), width));
+    while (sb.length() < width) {
+      sb.append(' ');
+    }
+    return sb.toString();
+  }
+}
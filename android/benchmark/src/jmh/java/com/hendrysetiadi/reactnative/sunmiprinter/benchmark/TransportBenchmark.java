@@ -0,0 +1,81 @@
+package com.hendrysetiadi.reactnative.sunmiprinter.benchmark;
+
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.EscPosWriter;
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.PrinterTransport;
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.RecordingTransport;
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.StreamTransport;
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.TextLayout;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Raw print job through a PrinterTransport, the same path as printRawDocument() / printTable() in the module:
+ * pooled writer, layout for the paper width of the transport, one write per job
+ */
+@State(Scope.Benchmark)
+public class TransportBenchmark {
+  private static final int[] WIDTHS = {3, 1, 1};
+  private static final int[] ALIGNMENTS = {0, 2, 2};
+
+  @Param({"memory", "stream"})
+  public String transportType;
+
+  @Param({"10", "50"})
+  public int items;
+
+  private String[][] rows;
+  private PrinterTransport transport;
+
+  @Setup
+  public void setup() {
+    rows = new String[items][];
+    for (int i = 0; i < items; i++) {
+      rows[i] = new String[]{"Item number " + i, String.valueOf(i % 5 + 1), (i * 3 + 1) + ".50"};
+    }
+    transport = transportType.equals("memory")
+      ? new RecordingTransport(576)
+      : new StreamTransport(new OutputStream() {
+          @Override
+          public void write(int b) {
+          }
+
+          @Override
+          public void write(byte[] b, int off, int len) {
+          }
+        }, 576);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    transport.close();
+  }
+
+  @Benchmark
+  public int printJob() throws IOException {
+    if (transport instanceof RecordingTransport) {
+      ((RecordingTransport) transport).reset();
+    }
+    int lineChars = TextLayout.columnsPerLine(transport.getPaperDots(), 1);
+    EscPosWriter writer = EscPosWriter.obtain();
+    try {
+      writer.init().align(1).characterSize(2, 2).text("STORE NAME").newLine().characterSize(1, 1).align(0);
+      for (String[] row : rows) {
+        writer.tableRow(row, WIDTHS, ALIGNMENTS, lineChars);
+      }
+      writer.align(1).qrCode("https://example.com/receipt/000123456", 8, 1).feed(3).cut();
+      transport.write(writer.buffer(), 0, writer.size());
+      transport.flush();
+      return writer.size();
+    } finally {
+      writer.recycle();
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package com.hendrysetiadi.reactnative.sunmiprinter
+
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.TextLayout
+
+/**
+ * Character size in effect while the operations of a raw document are written, tables are laid out for it
+ * @param paperDots     Printable width of the paper, in dots
+ */
+class LineLayout(val paperDots: Int) {
+  /**
+   * Character size multiplier set by the last operation (1 after Init)
+   */
+  var scale = 1
+
+  /**
+   * Number of half-width characters per line at the current scale
+   */
+  val lineChars: Int
+    get() = TextLayout.columnsPerLine(paperDots, scale)
+}
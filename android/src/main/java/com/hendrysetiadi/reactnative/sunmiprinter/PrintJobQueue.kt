@@ -0,0 +1,128 @@
+package com.hendrysetiadi.reactnative.sunmiprinter
+
+import java.util.concurrent.PriorityBlockingQueue
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Serialized print job queue drained by a single worker thread
+ * Jobs run one at a time, highest priority first and in FIFO order within the same priority,
+ * so the printer calls of two jobs never interleave
+ */
+class PrintJobQueue(name: String) {
+  companion object {
+    const val PRIORITY_LOW = 0
+    const val PRIORITY_NORMAL = 1
+    const val PRIORITY_HIGH = 2
+
+    private const val SHUTDOWN_MESSAGE = "Printer module destroyed"
+  }
+
+  fun interface Task {
+    @Throws(Exception::class)
+    fun run()
+  }
+
+  fun interface CompletionListener {
+    /**
+     * @param jobId     Identifier returned by submit()
+     * @param error     null when the job completed successfully
+     */
+    fun onJobComplete(jobId: Int, error: Exception?)
+  }
+
+  private class Job(
+    val id: Int,
+    val priority: Int,
+    val sequence: Long,
+    val task: Task,
+    val listener: CompletionListener?
+  ) : Comparable<Job> {
+    override fun compareTo(other: Job): Int {
+      if (priority != other.priority) return other.priority - priority
+      return sequence.compareTo(other.sequence)
+    }
+  }
+
+  private val jobs = PriorityBlockingQueue<Job>()
+  private val nextJobId = AtomicInteger(1)
+  private val nextSequence = AtomicLong()
+
+  @Volatile
+  private var running = true
+
+  private val worker = Thread({ drain() }, name).apply {
+    isDaemon = true
+    start()
+  }
+
+  /**
+   * Add a job to the queue
+   * @param priority    One of the PRIORITY_* values, higher priorities run first
+   * @param task        Work to run on the worker thread
+   * @param listener    Notified on the worker thread when the job is done
+   * @return            Job identifier
+   */
+  fun submit(priority: Int, task: Task, listener: CompletionListener? = null): Int {
+    check(running) { "Print job queue is shut down" }
+    val id = nextJobId.getAndIncrement()
+    val job = Job(id, priority, nextSequence.getAndIncrement(), task, listener)
+    jobs.add(job)
+    // shutdown() may have drained the queue between the check and the add
+    if (!running && jobs.remove(job)) {
+      cancel(job)
+    }
+    return id
+  }
+
+  /**
+   * Number of jobs waiting to run (not counting the running one)
+   */
+  fun pendingCount(): Int {
+    return jobs.size
+  }
+
+  /**
+   * Stop the worker, jobs still waiting are completed with an error so their listeners always fire
+   */
+  fun shutdown() {
+    running = false
+    worker.interrupt()
+    val pending = ArrayList<Job>()
+    jobs.drainTo(pending)
+    for (job in pending) {
+      cancel(job)
+    }
+  }
+
+  private fun cancel(job: Job) {
+    try {
+      job.listener?.onJobComplete(job.id, IllegalStateException(SHUTDOWN_MESSAGE))
+    } catch (e: Exception) {
+      e.printStackTrace()
+    }
+  }
+
+  private fun drain() {
+    while (running) {
+      val job = try {
+        jobs.take()
+      } catch (e: InterruptedException) {
+        break
+      }
+
+      var error: Exception? = null
+      try {
+        job.task.run()
+      } catch (e: Exception) {
+        error = e
+      }
+
+      try {
+        job.listener?.onJobComplete(job.id, error)
+      } catch (e: Exception) {
+        e.printStackTrace()
+      }
+    }
+  }
+}
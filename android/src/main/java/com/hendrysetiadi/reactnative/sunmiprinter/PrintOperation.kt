@@ -0,0 +1,138 @@
+package com.hendrysetiadi.reactnative.sunmiprinter
+
+import com.facebook.react.bridge.ReadableArray
+import com.facebook.react.bridge.ReadableMap
+
+/**
+ * A single typed operation of a printDocument() call
+ * The whole document is decoded once from the JS array before anything is sent to the printer service
+ */
+sealed class PrintOperation {
+  object Init : PrintOperation()
+  class LineWrap(val lines: Int) : PrintOperation()
+  object FeedPaper : PrintOperation()
+  class Alignment(val alignment: Int) : PrintOperation()
+  class FontSize(val fontSize: Float) : PrintOperation()
+  class Text(
+    val content: String,
+    val fontSize: Float?,
+    val isBold: Boolean,
+    val isUnderline: Boolean
+  ) : PrintOperation()
+  class Table(
+    val contents: Array<String?>,
+    val widths: IntArray,
+    val alignments: IntArray
+  ) : PrintOperation()
+  class Barcode(
+    val data: String,
+    val symbology: Int,
+    val height: Int,
+    val width: Int,
+    val textPosition: Int
+  ) : PrintOperation()
+  class QrCode(val data: String, val moduleSize: Int, val errorLevel: Int) : PrintOperation()
+  class Bitmap(val data: String, val width: Int, val height: Int, val ditherMode: Int) : PrintOperation()
+  class RegisteredImage(val id: String) : PrintOperation()
+  object OpenCashBox : PrintOperation()
+
+  companion object {
+    /**
+     * Decode the operation array sent from JS
+     * @param operations    Array of operation objects, each one with a "type" key
+     * @throws IllegalArgumentException when an operation is unknown or misses a required key
+     */
+    fun fromReadableArray(operations: ReadableArray): List<PrintOperation> {
+      val result = ArrayList<PrintOperation>(operations.size())
+      for (i in 0 until operations.size()) {
+        val operation = operations.getMap(i)
+          ?: throw IllegalArgumentException("Operation $i is not an object")
+        result.add(fromReadableMap(operation, i))
+      }
+      return result
+    }
+
+    private fun fromReadableMap(map: ReadableMap, index: Int): PrintOperation {
+      return when (val type = map.getString("type")) {
+        "init" -> Init
+        "lineWrap" -> LineWrap(requireInt(map, "lines", index))
+        "feedPaper" -> FeedPaper
+        "alignment" -> Alignment(requireInt(map, "alignment", index))
+        "fontSize" -> FontSize(requireDouble(map, "fontSize", index).toFloat())
+        "text" -> Text(
+          requireString(map, "content", index),
+          if (map.hasKey("fontSize") && !map.isNull("fontSize")) map.getDouble("fontSize").toFloat() else null,
+          map.hasKey("isBold") && map.getBoolean("isBold"),
+          map.hasKey("isUnderline") && map.getBoolean("isUnderline")
+        )
+        "table" -> Table(
+          toStringArray(requireArray(map, "contentArray", index)),
+          toIntArray(requireArray(map, "widthArray", index)),
+          toIntArray(requireArray(map, "alignmentArray", index))
+        )
+        "barcode" -> Barcode(
+          requireString(map, "data", index),
+          requireInt(map, "symbology", index),
+          requireInt(map, "height", index),
+          requireInt(map, "width", index),
+          requireInt(map, "textPosition", index)
+        )
+        "qrCode" -> QrCode(
+          requireString(map, "data", index),
+          requireInt(map, "moduleSize", index),
+          requireInt(map, "errorLevel", index)
+        )
+        "bitmap" -> Bitmap(
+          requireString(map, "data", index),
+          requireInt(map, "width", index),
+          requireInt(map, "height", index),
+          if (map.hasKey("ditherMode") && !map.isNull("ditherMode")) map.getInt("ditherMode") else 0
+        )
+        "registeredImage" -> RegisteredImage(requireString(map, "id", index))
+        "openCashBox" -> OpenCashBox
+        else -> throw IllegalArgumentException("Operation $index has unknown type '$type'")
+      }
+    }
+
+    private fun requireKey(map: ReadableMap, key: String, index: Int) {
+      if (!map.hasKey(key) || map.isNull(key)) {
+        throw IllegalArgumentException("Operation $index is missing '$key'")
+      }
+    }
+
+    private fun requireString(map: ReadableMap, key: String, index: Int): String {
+      requireKey(map, key, index)
+      return map.getString(key)!!
+    }
+
+    private fun requireDouble(map: ReadableMap, key: String, index: Int): Double {
+      requireKey(map, key, index)
+      return map.getDouble(key)
+    }
+
+    private fun requireInt(map: ReadableMap, key: String, index: Int): Int {
+      return requireDouble(map, key, index).toInt()
+    }
+
+    private fun requireArray(map: ReadableMap, key: String, index: Int): ReadableArray {
+      requireKey(map, key, index)
+      return map.getArray(key)!!
+    }
+
+    fun toStringArray(array: ReadableArray): Array<String?> {
+      val result = arrayOfNulls<String>(array.size())
+      for (i in 0 until array.size()) {
+        result[i] = array.getString(i)
+      }
+      return result
+    }
+
+    fun toIntArray(array: ReadableArray): IntArray {
+      val result = IntArray(array.size())
+      for (i in 0 until array.size()) {
+        result[i] = array.getInt(i)
+      }
+      return result
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package com.hendrysetiadi.reactnative.sunmiprinter
+
+import com.sunmi.peripheral.printer.InnerResultCallback
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+
+/**
+ * InnerResultCallback that can be awaited until the printer service reports the result of a call
+ * @param waitForPrintResult    Only settle on onPrintResult() (committed buffers), otherwise the first
+ *                              onRunResult() / onPrintResult() settles the callback
+ */
+class PrintResultCallback(private val waitForPrintResult: Boolean) : InnerResultCallback() {
+  private val latch = CountDownLatch(1)
+
+  @Volatile
+  private var error: String? = null
+
+  @Volatile
+  private var errorCode: Int = 0
+
+  override fun onRunResult(isSuccess: Boolean) {
+    if (!isSuccess) {
+      fail(0, "Printer failed to run the command")
+    } else if (!waitForPrintResult) {
+      latch.countDown()
+    }
+  }
+
+  override fun onReturnString(result: String?) {
+    // Only returned by query calls, the result is read from the call itself
+  }
+
+  override fun onRaiseException(code: Int, msg: String?) {
+    fail(code, msg ?: "Printer raised exception $code")
+  }
+
+  override fun onPrintResult(code: Int, msg: String?) {
+    if (code == 0) {
+      latch.countDown()
+    } else {
+      fail(code, msg ?: "Printer failed with code $code")
+    }
+  }
+
+  private fun fail(code: Int, msg: String) {
+    if (latch.count > 0) {
+      errorCode = code
+      error = msg
+      latch.countDown()
+    }
+  }
+
+  /**
+   * Block until the printer service reports the result
+   * @param timeoutMs     Maximum time to wait
+   * @throws TimeoutException when the printer did not report anything in time
+   * @throws PrintResultException when the printer reported a failure
+   */
+  @Throws(TimeoutException::class, InterruptedException::class)
+  fun await(timeoutMs: Long) {
+    if (!latch.await(timeoutMs, TimeUnit.MILLISECONDS)) {
+      throw TimeoutException("Printer did not report completion within $timeoutMs ms")
+    }
+    error?.let { throw PrintResultException(errorCode, it) }
+  }
+
+  class PrintResultException(val code: Int, message: String) : Exception(message)
+}
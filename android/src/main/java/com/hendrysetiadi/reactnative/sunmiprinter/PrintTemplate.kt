@@ -0,0 +1,134 @@
+package com.hendrysetiadi.reactnative.sunmiprinter
+
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.EscPosWriter
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Receipt template registered once and printed many times with different values
+ * Text, table, barcode and QR code strings can hold {{key}} placeholders. The template is compiled once per
+ * paper width into raw ESC/POS segments: everything around the placeholders is encoded at compile time, only
+ * the values inside texts are encoded at print time, and the tables / barcodes / QR codes holding placeholders
+ * are laid out again with the values (their layout and length depend on them), for the character size in
+ * effect at their position
+ * @param operations    Operations of the template, same as printRawDocument()
+ */
+class PrintTemplate(private val operations: List<PrintOperation>) {
+  companion object {
+    private val PLACEHOLDER = Regex("""\{\{\s*([A-Za-z0-9_.\-]+)\s*\}\}""")
+  }
+
+  /**
+   * Writes the operations of the template as raw ESC/POS, the layout follows the character size they set
+   */
+  interface OperationWriter {
+    fun write(writer: EscPosWriter, operation: PrintOperation, layout: LineLayout)
+    fun writeTextStart(writer: EscPosWriter, operation: PrintOperation.Text, layout: LineLayout)
+    fun writeTextEnd(writer: EscPosWriter, operation: PrintOperation.Text, layout: LineLayout)
+  }
+
+  private sealed class Segment {
+    class Bytes(val data: ByteArray) : Segment()
+    class Value(val key: String) : Segment()
+    class Operation(val operation: PrintOperation, val scale: Int) : Segment()
+  }
+
+  private val compiled = ConcurrentHashMap<Int, List<Segment>>()
+
+  /**
+   * Keys of every placeholder of the template
+   */
+  val keys: Set<String> = LinkedHashSet<String>().apply {
+    for (operation in operations) {
+      for (text in placeholderTexts(operation)) {
+        PLACEHOLDER.findAll(text).forEach { add(it.groupValues[1]) }
+      }
+    }
+  }
+
+  /**
+   * Write the template with the given values
+   * @param paperDots         Printable width of the paper, in dots, the template is compiled once per paper width
+   * @param values            Value of every placeholder key
+   * @param operationWriter   Writer of the operations
+   * @throws IllegalArgumentException when a placeholder has no value
+   */
+  fun render(writer: EscPosWriter, paperDots: Int, values: Map<String, String>, operationWriter: OperationWriter) {
+    val missing = keys.filter { !values.containsKey(it) }
+    require(missing.isEmpty()) { "Missing template values: ${missing.joinToString()}" }
+
+    val segments = compiled.getOrPut(paperDots) { compile(paperDots, operationWriter) }
+    val layout = LineLayout(paperDots)
+    for (segment in segments) {
+      when (segment) {
+        is Segment.Bytes -> writer.write(segment.data)
+        is Segment.Value -> writer.text(values[segment.key])
+        is Segment.Operation -> {
+          layout.scale = segment.scale
+          operationWriter.write(writer, substitute(segment.operation, values), layout)
+        }
+      }
+    }
+  }
+
+  private fun compile(paperDots: Int, operationWriter: OperationWriter): List<Segment> {
+    val layout = LineLayout(paperDots)
+    val segments = ArrayList<Segment>()
+    val static = EscPosWriter()
+    fun flush() {
+      if (static.size() > 0) {
+        segments.add(Segment.Bytes(static.toByteArray()))
+        static.reset()
+      }
+    }
+
+    for (operation in operations) {
+      if (operation is PrintOperation.Text && PLACEHOLDER.containsMatchIn(operation.content)) {
+        operationWriter.writeTextStart(static, operation, layout)
+        var last = 0
+        for (match in PLACEHOLDER.findAll(operation.content)) {
+          static.text(operation.content.substring(last, match.range.first))
+          flush()
+          segments.add(Segment.Value(match.groupValues[1]))
+          last = match.range.last + 1
+        }
+        static.text(operation.content.substring(last))
+        operationWriter.writeTextEnd(static, operation, layout)
+      } else if (operation is PrintOperation.RegisteredImage ||
+        placeholderTexts(operation).any { PLACEHOLDER.containsMatchIn(it) }) {
+        // Registered images can change after the template is compiled
+        flush()
+        segments.add(Segment.Operation(operation, layout.scale))
+      } else {
+        operationWriter.write(static, operation, layout)
+      }
+    }
+    flush()
+    return segments
+  }
+
+  private fun placeholderTexts(operation: PrintOperation): List<String> {
+    return when (operation) {
+      is PrintOperation.Text -> listOf(operation.content)
+      is PrintOperation.Table -> operation.contents.filterNotNull()
+      is PrintOperation.Barcode -> listOf(operation.data)
+      is PrintOperation.QrCode -> listOf(operation.data)
+      else -> emptyList()
+    }
+  }
+
+  private fun substitute(operation: PrintOperation, values: Map<String, String>): PrintOperation {
+    fun fill(text: String): String = PLACEHOLDER.replace(text) { values[it.groupValues[1]] ?: "" }
+
+    return when (operation) {
+      is PrintOperation.Table -> PrintOperation.Table(
+        Array(operation.contents.size) { i -> operation.contents[i]?.let { fill(it) } },
+        operation.widths,
+        operation.alignments
+      )
+      is PrintOperation.Barcode -> PrintOperation.Barcode(fill(operation.data), operation.symbology,
+        operation.height, operation.width, operation.textPosition)
+      is PrintOperation.QrCode -> PrintOperation.QrCode(fill(operation.data), operation.moduleSize, operation.errorLevel)
+      else -> operation
+    }
+  }
+}
@@ -0,0 +1,186 @@
+package com.hendrysetiadi.reactnative.sunmiprinter
+
+import android.content.Context
+import com.sunmi.peripheral.printer.InnerPrinterCallback
+import com.sunmi.peripheral.printer.InnerPrinterException
+import com.sunmi.peripheral.printer.InnerPrinterManager
+import com.sunmi.peripheral.printer.SunmiPrinterService
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+
+/**
+ * Keeps the binding to the Sunmi printer service
+ * Callers can wait for the service while it is still binding, and the service is bound again
+ * with exponential backoff when binding fails, does not complete in time or the service dies
+ */
+class PrinterConnectionManager(
+  private val context: Context,
+  private val listener: StateListener
+) {
+  companion object {
+    private const val INITIAL_BACKOFF_MS = 500L
+    private const val MAX_BACKOFF_MS = 30000L
+    // bindService() returned true but onConnected() never came
+    private const val BIND_TIMEOUT_MS = 5000L
+  }
+
+  enum class State(val value: String) {
+    DISCONNECTED("disconnected"),
+    CONNECTING("connecting"),
+    CONNECTED("connected")
+  }
+
+  fun interface StateListener {
+    fun onStateChange(state: State)
+  }
+
+  private val lock = ReentrantLock()
+  private val connected = lock.newCondition()
+  private val scheduler = Executors.newSingleThreadScheduledExecutor { runnable ->
+    Thread(runnable, "SunmiPrinterConnection").apply { isDaemon = true }
+  }
+
+  private var service: SunmiPrinterService? = null
+  private var state = State.DISCONNECTED
+  private var backoffMs = INITIAL_BACKOFF_MS
+  private var reconnect: ScheduledFuture<*>? = null
+  private var bindTimeout: ScheduledFuture<*>? = null
+  private var closed = false
+
+  private val innerPrinterCallback: InnerPrinterCallback = object : InnerPrinterCallback() {
+    override fun onConnected(service: SunmiPrinterService) {
+      lock.withLock {
+        this@PrinterConnectionManager.service = service
+        backoffMs = INITIAL_BACKOFF_MS
+        bindTimeout?.cancel(false)
+        bindTimeout = null
+        connected.signalAll()
+      }
+      setState(State.CONNECTED)
+    }
+
+    override fun onDisconnected() {
+      lock.withLock {
+        service = null
+      }
+      setState(State.DISCONNECTED)
+      scheduleReconnect()
+    }
+  }
+
+  /**
+   * Bind the printer service
+   */
+  fun connect() {
+    lock.withLock {
+      if (closed || service != null) return
+    }
+    setState(State.CONNECTING)
+
+    val bound = try {
+      InnerPrinterManager.getInstance().bindService(context, innerPrinterCallback)
+    } catch (e: InnerPrinterException) {
+      e.printStackTrace()
+      false
+    }
+    if (!bound) {
+      setState(State.DISCONNECTED)
+      scheduleReconnect()
+      return
+    }
+    lock.withLock {
+      if (closed || service != null) return
+      bindTimeout?.cancel(false)
+      bindTimeout = scheduler.schedule({ onBindTimeout() }, BIND_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+    }
+  }
+
+  private fun onBindTimeout() {
+    lock.withLock {
+      bindTimeout = null
+      if (closed || service != null) return
+    }
+    setState(State.DISCONNECTED)
+    scheduleReconnect()
+  }
+
+  /**
+   * Unbind the printer service, it will not be bound again
+   */
+  fun close() {
+    lock.withLock {
+      closed = true
+      reconnect?.cancel(false)
+      bindTimeout?.cancel(false)
+      service = null
+      connected.signalAll()
+    }
+    try {
+      InnerPrinterManager.getInstance().unBindService(context, innerPrinterCallback)
+    } catch (e: InnerPrinterException) {
+      e.printStackTrace()
+    }
+    scheduler.shutdownNow()
+    setState(State.DISCONNECTED)
+  }
+
+  fun getState(): State {
+    lock.withLock {
+      return state
+    }
+  }
+
+  /**
+   * @return    Bound service, or null when the service is not connected
+   */
+  fun getService(): SunmiPrinterService? {
+    lock.withLock {
+      return service
+    }
+  }
+
+  /**
+   * Wait until the service is connected
+   * @param timeoutMs     Maximum time to wait
+   * @throws IllegalStateException when the service is not connected in time
+   */
+  fun awaitService(timeoutMs: Long): SunmiPrinterService {
+    var remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs)
+    lock.withLock {
+      while (service == null && !closed && remainingNanos > 0) {
+        remainingNanos = connected.awaitNanos(remainingNanos)
+      }
+      return service ?: throw IllegalStateException("Printer Service is not Connected")
+    }
+  }
+
+  private fun scheduleReconnect() {
+    lock.withLock {
+      if (closed || reconnect?.isDone == false) return
+      val delay = backoffMs
+      backoffMs = (backoffMs * 2).coerceAtMost(MAX_BACKOFF_MS)
+      reconnect = scheduler.schedule({
+        lock.withLock {
+          reconnect = null
+        }
+        try {
+          InnerPrinterManager.getInstance().unBindService(context, innerPrinterCallback)
+        } catch (e: Exception) {
+          // Not bound anymore
+        }
+        connect()
+      }, delay, TimeUnit.MILLISECONDS)
+    }
+  }
+
+  private fun setState(newState: State) {
+    lock.withLock {
+      if (state == newState) return
+      state = newState
+    }
+    listener.onStateChange(newState)
+  }
+}
@@ -0,0 +1,87 @@
+package com.hendrysetiadi.reactnative.sunmiprinter
+
+import com.sunmi.peripheral.printer.SunmiPrinterService
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+
+/**
+ * Polls the printer state in the background and reports only the transitions
+ * @param serviceProvider   Current printer service, null while it is not connected
+ * @param listener          Notified on the monitor thread when the state code changes
+ */
+class PrinterStatusMonitor(
+  private val serviceProvider: () -> SunmiPrinterService?,
+  private val listener: StatusListener
+) {
+  companion object {
+    const val STATUS_SERVICE_NOT_CONNECTED = -1
+
+    /**
+     * Describe a printer state code returned by updatePrinterState()
+     */
+    fun describe(code: Int): String {
+      return when (code) {
+        STATUS_SERVICE_NOT_CONNECTED -> "Printer Service is not Connected"
+        1 -> "Printer is running"
+        2 -> "Printer found but still initializing"
+        3 -> "Printer hardware interface is abnormal and needs to be reprinted"
+        4 -> "Printer is out of paper"
+        5 -> "Printer is overheating"
+        6 -> "Printer's cover is not closed"
+        7 -> "Printer's cutter is abnormal"
+        8 -> "Printer's cutter is normal"
+        9 -> "Black Mark Paper is not found"
+        505 -> "Printer does not exist"
+        else -> ""
+      }
+    }
+  }
+
+  fun interface StatusListener {
+    fun onStatusChange(code: Int)
+  }
+
+  private var executor: ScheduledExecutorService? = null
+  private var lastCode: Int? = null
+
+  /**
+   * Start polling, restarts with the new interval when already running
+   * @param intervalMs    Polling interval
+   */
+  @Synchronized
+  fun start(intervalMs: Long) {
+    stop()
+    val scheduler = Executors.newSingleThreadScheduledExecutor { runnable ->
+      Thread(runnable, "SunmiPrinterStatusMonitor").apply { isDaemon = true }
+    }
+    scheduler.scheduleWithFixedDelay({ poll() }, 0, intervalMs, TimeUnit.MILLISECONDS)
+    executor = scheduler
+  }
+
+  @Synchronized
+  fun stop() {
+    executor?.shutdownNow()
+    executor = null
+    lastCode = null
+  }
+
+  @Synchronized
+  fun isRunning(): Boolean {
+    return executor != null
+  }
+
+  private fun poll() {
+    val code = try {
+      serviceProvider()?.updatePrinterState() ?: STATUS_SERVICE_NOT_CONNECTED
+    } catch (e: Exception) {
+      STATUS_SERVICE_NOT_CONNECTED
+    }
+
+    synchronized(this) {
+      if (executor == null || code == lastCode) return
+      lastCode = code
+    }
+    listener.onStatusChange(code)
+  }
+}
@@ -0,0 +1,71 @@
+package com.hendrysetiadi.reactnative.sunmiprinter
+
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.RasterDecoder
+import java.util.concurrent.ArrayBlockingQueue
+
+/**
+ * Prints an image as a sequence of fixed height raster bands (one GS v 0 command each)
+ * A helper thread decodes and converts the next bands while the current one is sent to the printer,
+ * with at most BUFFERS bands in memory, so the memory stays flat and the paper starts moving after the first band
+ * @param decoder     Decoder of the image, only used by the helper thread while run() is running
+ * @param bandRows    Number of rows per band
+ */
+class RasterBandPipeline(private val decoder: RasterDecoder, bandRows: Int) {
+  companion object {
+    private const val BUFFERS = 3
+    private val END = Any()
+  }
+
+  fun interface BandSender {
+    @Throws(Exception::class)
+    fun send(band: ByteArray)
+  }
+
+  private val bandRows = bandRows.coerceIn(1, RasterDecoder.MAX_BAND_ROWS)
+
+  /**
+   * Decode and send every band, returns when the last band is sent
+   * @param sender    Called on the calling thread for each band, the array is reused once it returns
+   */
+  @Throws(Exception::class)
+  fun run(sender: BandSender) {
+    val fullBandSize = bandRows * decoder.bytesPerRow + 8
+    val free = ArrayBlockingQueue<ByteArray>(BUFFERS)
+    val ready = ArrayBlockingQueue<Any>(BUFFERS + 1)
+    val bands = (decoder.remainingRows + bandRows - 1) / bandRows
+    repeat(minOf(BUFFERS, bands)) { free.add(ByteArray(fullBandSize)) }
+
+    val producer = Thread({
+      try {
+        while (decoder.remainingRows > 0) {
+          val rows = minOf(bandRows, decoder.remainingRows)
+          val band = if (rows == bandRows) free.take() else ByteArray(rows * decoder.bytesPerRow + 8)
+          decoder.decodeBand(band, 0, rows, 0)
+          ready.put(band)
+        }
+        ready.put(END)
+      } catch (e: InterruptedException) {
+        // Sending failed, stop decoding
+      } catch (e: Throwable) {
+        ready.offer(e)
+      }
+    }, "SunmiPrinterBandDecoder")
+    producer.isDaemon = true
+    producer.start()
+
+    try {
+      while (true) {
+        val item = ready.take()
+        if (item === END) break
+        if (item is Throwable) throw item
+
+        val band = item as ByteArray
+        sender.send(band)
+        if (band.size == fullBandSize) free.offer(band)
+      }
+    } finally {
+      producer.interrupt()
+      producer.join()
+    }
+  }
+}
@@ -1,25 +1,67 @@
 package com.hendrysetiadi.reactnative.sunmiprinter
 
-import android.graphics.Bitmap
+import android.net.Uri
+import android.os.ParcelFileDescriptor
 import android.os.RemoteException
 import android.util.Base64
 import android.widget.Toast
+import com.facebook.react.bridge.Arguments
 import com.facebook.react.bridge.Promise
 import com.facebook.react.bridge.ReactApplicationContext
 import com.facebook.react.bridge.ReadableArray
+import com.facebook.react.bridge.ReadableMap
+import com.facebook.react.bridge.ReadableType
+import com.facebook.react.bridge.UiThreadUtil
+import com.facebook.react.bridge.WritableMap
 import com.facebook.react.module.annotations.ReactModule
+import com.facebook.react.modules.core.DeviceEventManagerModule
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.BarcodeRasterizer
 import com.hendrysetiadi.reactnative.sunmiprinter.utils.BitmapUtil
 import com.hendrysetiadi.reactnative.sunmiprinter.utils.ESCUtil
-import com.sunmi.peripheral.printer.InnerPrinterCallback
-import com.sunmi.peripheral.printer.InnerPrinterException
-import com.sunmi.peripheral.printer.InnerPrinterManager
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.EscPosWriter
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.HexCodec
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.NetworkPrinterPool
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.NetworkTransport
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.PrinterTransport
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.QrRasterizer
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.RasterCache
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.RasterDecoder
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.RecordingTransport
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.StreamTransport
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.TextLayout
 import com.sunmi.peripheral.printer.SunmiPrinterService
+import java.io.File
+import java.io.FileNotFoundException
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.util.concurrent.ConcurrentHashMap
 
 @ReactModule(name = SunmiPrinterModule.NAME)
 class SunmiPrinterModule(reactContext: ReactApplicationContext) :
   NativeSunmiPrinterSpec(reactContext) {
   companion object {
     const val NAME = "SunmiPrinter"
+
+    private const val IMAGE_CACHE_MAX_BYTES = 4L * 1024 * 1024
+
+    private const val EVENT_PRINT_JOB_COMPLETE = "onPrintJobComplete"
+
+    private const val DEFAULT_PRINT_RESULT_TIMEOUT_MS = 30000L
+
+    private const val EVENT_CONNECTION_CHANGE = "onPrinterConnectionChange"
+    private const val CONNECT_TIMEOUT_MS = 10000L
+
+    // Adjacent raw commands of a document are merged up to this size, far below the binder transaction limit
+    private const val RAW_COALESCE_MAX_BYTES = 64 * 1024
+
+    private const val EVENT_STATUS_CHANGE = "onPrinterStatusChange"
+    private const val MIN_STATUS_INTERVAL_MS = 100
+
+    // Raw data queued per network printer before a job waits for the printer to catch up
+    private const val NETWORK_MAX_PENDING_BYTES = 1024 * 1024
+    private const val NETWORK_IDLE_TIMEOUT_MS = 60000L
+    private const val NETWORK_SEND_TIMEOUT_MS = 30000L
   }
 
   override fun getName(): String {
@@ -28,110 +70,95 @@ class SunmiPrinterModule(reactContext: ReactApplicationContext) :
 
 
   private val mReactContext: ReactApplicationContext = reactContext
-  private var sunmiPrinterService: SunmiPrinterService? = null
-
-  private val innerPrinterCallback: InnerPrinterCallback = object : InnerPrinterCallback() {
-    override fun onConnected(service: SunmiPrinterService) {
-      sunmiPrinterService = service
-    }
+  private val jobQueue = PrintJobQueue("SunmiPrinterJobQueue")
 
-    override fun onDisconnected() {
-      sunmiPrinterService = null
-    }
-  }
+  @Volatile
+  private var awaitPrintResult = false
+  @Volatile
+  private var printResultTimeoutMs = DEFAULT_PRINT_RESULT_TIMEOUT_MS
+  // Only used on the job queue worker thread
+  private val jobResultCallbacks = ArrayList<PrintResultCallback>()
+  // Buffer mode entered with enterPrintBuffer(), changed on the job queue worker and cleared on disconnect
+  @Volatile
+  private var printerBufferOpen = false
+  private val rasterCache = RasterCache(IMAGE_CACHE_MAX_BYTES)
+  private val registeredImages = ConcurrentHashMap<String, ByteArray>()
+  private val templates = ConcurrentHashMap<String, PrintTemplate>()
+  // Destination of the raw command jobs, null = printer service. Only changed on the job queue worker
+  @Volatile
+  private var rawTransport: PrinterTransport? = null
+  // Network printers, created on first use
+  private var networkPool: NetworkPrinterPool? = null
+  private var networkQueue: PrintJobQueue? = null
 
-  private fun connectSunmiPrinterService() {
-    try {
-      InnerPrinterManager.getInstance().bindService(mReactContext, innerPrinterCallback)
-    } catch (e: InnerPrinterException) {
-      e.printStackTrace()
-      Toast.makeText(mReactContext, e.message, Toast.LENGTH_LONG).show();
-    }
+  private val connectionManager = PrinterConnectionManager(reactContext) { state ->
+    // A new service binding starts outside buffer mode
+    if (state != PrinterConnectionManager.State.CONNECTED) printerBufferOpen = false
+    val event = Arguments.createMap()
+    event.putString("state", state.value)
+    sendEvent(EVENT_CONNECTION_CHANGE, event)
   }
 
-  private fun disconnectSunmiPrinterService() {
-    try {
-      if (sunmiPrinterService != null) {
-        InnerPrinterManager.getInstance().unBindService(mReactContext, innerPrinterCallback)
-        sunmiPrinterService = null
-      }
-    } catch (e: InnerPrinterException) {
-      e.printStackTrace()
-      Toast.makeText(mReactContext, e.message, Toast.LENGTH_LONG).show();
-    }
+  private val statusMonitor = PrinterStatusMonitor({ connectionManager.getService() }) { code ->
+    sendEvent(EVENT_STATUS_CHANGE, statusEvent(code))
   }
 
-
   init {
-    connectSunmiPrinterService()
+    connectionManager.connect()
   }
 
+  override fun invalidate() {
+    statusMonitor.stop()
+    jobQueue.shutdown()
+    rawTransport?.close()
+    synchronized(this) {
+      networkQueue?.shutdown()
+      networkPool?.close()
+    }
+    connectionManager.close()
+    super.invalidate()
+  }
 
 
-  override fun initPrinter(promise: Promise) {
-    if (sunmiPrinterService == null) promise.reject("0", "Printer Service is not Connected")
-    try {
-      sunmiPrinterService!!.printerInit(null /* object : InnerResultCallback() {
-        override fun onRunResult(isSuccess: Boolean) {
-          if (isSuccess) {
-            promise.resolve(null)
-          } else {
-            promise.reject("0", isSuccess.toString() + "")
-          }
-        }
 
-        override fun onReturnString(result: String?) {
-          promise.resolve(result)
-        }
+  /**
+   * Get the state of the connection to the printer service
+   * @param promise   Resolved with "connected", "connecting" or "disconnected"
+   */
+  override fun getConnectionState(promise: Promise) {
+    promise.resolve(connectionManager.getState().value)
+  }
 
-        override fun onRaiseException(code: Int, msg: String?) {
-          promise.reject("" + code, msg)
-        }
 
-        override fun onPrintResult(code: Int, msg: String?) {
-          TODO("Not yet implemented")
-        }
-      } */)
-      promise.resolve(null)
-    } catch (e: RemoteException) {
-      promise.reject("0", e.message)
+  override fun initPrinter(promise: Promise) {
+    enqueue(promise) { service ->
+      service.printerInit(resultCallback())
+      null
     }
   }
 
 
   override fun getPrinterSerialNo(promise: Promise) {
-    if (sunmiPrinterService == null) promise.reject("0", "Printer Service is not Connected")
-    try {
-      promise.resolve(sunmiPrinterService!!.printerSerialNo)
-    } catch (e: RemoteException) {
-      promise.reject("0", e.message)
+    enqueue(promise) { service ->
+      service.printerSerialNo
     }
   }
 
   override fun getPrinterModel(promise: Promise) {
-    if (sunmiPrinterService == null) promise.reject("0", "Printer Service is not Connected")
-    try {
-      promise.resolve(sunmiPrinterService!!.printerModal)
-    } catch (e: RemoteException) {
-      promise.reject("0", e.message)
+    enqueue(promise) { service ->
+      service.printerModal
     }
   }
 
   override fun getPrinterVersion(promise: Promise) {
-    if (sunmiPrinterService == null) promise.reject("0", "Printer Service is not Connected")
-    try {
-      promise.resolve(sunmiPrinterService!!.printerVersion)
-    } catch (e: RemoteException) {
-      promise.reject("0", e.message)
+    enqueue(promise) { service ->
+      service.printerVersion
     }
   }
 
   override fun getPrinterPaper(promise: Promise) {
-    if (sunmiPrinterService == null) promise.reject("0", "Printer Service is not Connected")
-    try {
-      promise.resolve(if (sunmiPrinterService!!.printerPaper == 1) "58mm" else "80mm")
-    } catch (e: RemoteException) {
-      promise.reject("0", e.message)
+    enqueue(promise) { service ->
+      if (service.printerPaper == 1) "58mm" else "80mm"
     }
   }
 
@@ -142,12 +169,9 @@ class SunmiPrinterModule(reactContext: ReactApplicationContext) :
    * @param promise
    */
   override fun printLineWrap(n: Double, promise: Promise) {
-    if (sunmiPrinterService == null) promise.reject("0", "Printer Service is not Connected")
-    try {
-      sunmiPrinterService!!.lineWrap(n.toInt(), null)
-      promise.resolve(null)
-    } catch (e: RemoteException) {
-      promise.reject("0", e.message)
+    enqueue(promise) { service ->
+      service.lineWrap(n.toInt(), resultCallback())
+      null
     }
   }
 
@@ -157,12 +181,14 @@ class SunmiPrinterModule(reactContext: ReactApplicationContext) :
    * @param promise
    */
   override fun feedPaper(promise: Promise) {
-    if (sunmiPrinterService == null) promise.reject("0", "Printer Service is not Connected")
-    try {
-      sunmiPrinterService!!.autoOutPaper(null)
-      promise.resolve(null)
-    } catch (e: RemoteException) {
-      printLineWrap(3.0, promise)
+    enqueue(promise) { service ->
+      try {
+        service.autoOutPaper(resultCallback())
+      } catch (e: RemoteException) {
+        discardResultCallbacks()
+        service.lineWrap(3, resultCallback())
+      }
+      null
     }
   }
 
@@ -173,12 +199,9 @@ class SunmiPrinterModule(reactContext: ReactApplicationContext) :
    * @param promise
    */
   override fun setAlignment(alignment: Double, promise: Promise) {
-    if (sunmiPrinterService == null) promise.reject("0", "Printer Service is not Connected")
-    try {
-      sunmiPrinterService!!.setAlignment(alignment.toInt(), null)
-      promise.resolve(null)
-    } catch (e: RemoteException) {
-      promise.reject("0", e.message)
+    enqueue(promise) { service ->
+      service.setAlignment(alignment.toInt(), resultCallback())
+      null
     }
   }
 
@@ -190,12 +213,9 @@ class SunmiPrinterModule(reactContext: ReactApplicationContext) :
    * @param promise
    */
   override fun setFontSize(fontSize: Double, promise: Promise) {
-    if (sunmiPrinterService == null) promise.reject("0", "Printer Service is not Connected")
-    try {
-      sunmiPrinterService!!.setFontSize(fontSize.toFloat(), null)
-      promise.resolve(null)
-    } catch (e: RemoteException) {
-      promise.reject("0", e.message)
+    enqueue(promise) { service ->
+      service.setFontSize(fontSize.toFloat(), resultCallback())
+      null
     }
   }
 
@@ -206,12 +226,9 @@ class SunmiPrinterModule(reactContext: ReactApplicationContext) :
    * @param promise
    */
   override fun printText(content: String, promise: Promise) {
-    if (sunmiPrinterService == null) promise.reject("0", "Printer Service is not Connected")
-    try {
-      sunmiPrinterService!!.printText(content, null)
-      promise.resolve(null)
-    } catch (e: RemoteException) {
-      promise.reject("0", e.message)
+    enqueue(promise) { service ->
+      service.printText(content, resultCallback())
+      null
     }
   }
 
@@ -230,19 +247,15 @@ class SunmiPrinterModule(reactContext: ReactApplicationContext) :
     isUnderline: Boolean,
     promise: Promise
   ) {
-    if (sunmiPrinterService == null) promise.reject("0", "Printer Service is not Connected")
-    try {
-      if (isBold) sunmiPrinterService!!.sendRAWData(ESCUtil.boldOn(), null)
-      if (isUnderline) sunmiPrinterService!!.sendRAWData(ESCUtil.underlineWithOneDotWidthOn(), null)
-
-      sunmiPrinterService!!.printTextWithFont(content, null, fontSize.toFloat(), null)
+    enqueue(promise) { service ->
+      // Bold and underline go in one raw command, and both are reset with one raw command
+      val style = ESCUtil.style(isBold, isUnderline)
+      if (style.isNotEmpty()) service.sendRAWData(style, resultCallback())
 
-      sunmiPrinterService!!.sendRAWData(ESCUtil.boldOff(), null)
-      sunmiPrinterService!!.sendRAWData(ESCUtil.underlineOff(), null)
+      service.printTextWithFont(content, null, fontSize.toFloat(), resultCallback())
 
-      promise.resolve(null)
-    } catch (e: RemoteException) {
-      promise.reject("0", e.message)
+      service.sendRAWData(ESCUtil.styleReset(), resultCallback())
+      null
     }
   }
 
@@ -259,8 +272,7 @@ class SunmiPrinterModule(reactContext: ReactApplicationContext) :
     alignmentArray: ReadableArray,
     promise: Promise
   ) {
-    if (sunmiPrinterService == null) promise.reject("0", "Printer Service is not Connected")
-    try {
+    enqueue(promise) { service ->
       val colsTextArr = arrayOfNulls<String>(contentArray.size())
       for (i in 0 until contentArray.size()) {
         colsTextArr[i] = contentArray.getString(i)
@@ -276,10 +288,84 @@ class SunmiPrinterModule(reactContext: ReactApplicationContext) :
         colsAlign[i] = alignmentArray.getInt(i)
       }
 
-      sunmiPrinterService!!.printColumnsString(colsTextArr, colsWidthArr, colsAlign, null)
-      promise.resolve(null)
-    } catch (e: RemoteException) {
+      service.printColumnsString(colsTextArr, colsWidthArr, colsAlign, resultCallback())
+      null
+    }
+  }
+
+  /**
+   * Print Text in a form of Table, laid out natively and sent as raw ESC/POS
+   * Columns are wrapped and aligned by display width (CJK and emoji characters take two columns)
+   * for the given font size and the paper width of the printer
+   * @param contentArray    Array of Text for each Column
+   * @param widthArray      Array of Width ratio for each Column
+   * @param alignmentArray  Array of Alignment for each Column (0 = Left, 1 = Center, 2 = Right)
+   * @param fontSize        Font size, mapped to a multiplier of the default 24px font
+   * @param promise
+   */
+  override fun printColumnsText(
+    contentArray: ReadableArray,
+    widthArray: ReadableArray,
+    alignmentArray: ReadableArray,
+    fontSize: Double,
+    promise: Promise
+  ) {
+    val columns = Array(contentArray.size()) { i -> contentArray.getString(i) ?: "" }
+    val widths = IntArray(widthArray.size()) { i -> widthArray.getInt(i) }
+    val alignments = IntArray(alignmentArray.size()) { i -> alignmentArray.getInt(i) }
+    val scale = fontScale(fontSize.toFloat())
+
+    enqueueRaw(promise) { transport ->
+      withWriter { writer ->
+        if (scale != 1) writer.characterSize(scale, scale)
+        writer.tableRow(columns, widths, alignments, paperLineChars(transport, scale))
+        if (scale != 1) writer.characterSize(1, 1)
+        transport.write(writer.buffer(), 0, writer.size())
+      }
+      null
+    }
+  }
+
+  /**
+   * Print many rows of a Table in one call, the column Width and Alignment are given once
+   * All rows are laid out natively (see printColumnsText) and sent as one raw ESC/POS block
+   * @param rows            Array of rows, each an Array of Text for each Column
+   * @param widthArray      Array of Width ratio for each Column
+   * @param alignmentArray  Array of Alignment for each Column (0 = Left, 1 = Center, 2 = Right)
+   * @param promise
+   */
+  override fun printTable(
+    rows: ReadableArray,
+    widthArray: ReadableArray,
+    alignmentArray: ReadableArray,
+    promise: Promise
+  ) {
+    val widths = IntArray(widthArray.size()) { i -> widthArray.getInt(i) }
+    val alignments = IntArray(alignmentArray.size()) { i -> alignmentArray.getInt(i) }
+    val table = try {
+      Array(rows.size()) { r ->
+        val row = rows.getArray(r) ?: throw IllegalArgumentException("Row $r is not an array")
+        Array(row.size()) { i -> row.getString(i) ?: "" }
+      }
+    } catch (e: Exception) {
       promise.reject("0", e.message)
+      return
+    }
+
+    enqueueRaw(promise) { transport ->
+      val lineChars = paperLineChars(transport, 1)
+      withWriter(table.size * (lineChars + 1)) { writer ->
+        for (row in table) {
+          writer.tableRow(row, widths, alignments, lineChars)
+          // Very long tables are split in blocks that stay far below the binder transaction limit
+          if (writer.size() >= RAW_COALESCE_MAX_BYTES) {
+            transport.write(writer.buffer(), 0, writer.size())
+            writer.reset()
+          }
+        }
+        if (writer.size() > 0) transport.write(writer.buffer(), 0, writer.size())
+      }
+      null
     }
   }
 
@@ -314,13 +400,43 @@ class SunmiPrinterModule(reactContext: ReactApplicationContext) :
     textPosition: Double,
     promise: Promise
   ) {
-    if (sunmiPrinterService == null) promise.reject("0", "Printer Service is not Connected")
-    try {
-      sunmiPrinterService!!.printBarCode(data, symbology.toInt(), height.toInt(), width.toInt(),
-        textPosition.toInt(), null)
-      promise.resolve(null)
-    } catch (e: RemoteException) {
-      promise.reject("0", e.message)
+    enqueue(promise) { service ->
+      service.printBarCode(data, symbology.toInt(), height.toInt(), width.toInt(),
+        textPosition.toInt(), resultCallback())
+      null
+    }
+  }
+
+  /**
+   * Print One-Dimensional Barcode rendered on the device and printed as a raster bitmap
+   * For symbologies and widths the printer firmware does not render well, e.g. GS1-128 or 1 dot wide modules
+   * The encoded barcodes are cached, so repeated data is not encoded again
+   * @param data          Barcode data (GS1-128: element string, variable length fields ended by a GS character)
+   * @param symbology     Barcode Type (same as printBarcode, plus 9 = GS1-128; UPC-E and CODE93 are not supported)
+   * @param height        Barcode Height in dots
+   * @param width         Barcode Width, width of the narrowest bar in dots (1 - 6)
+   * @param textPosition  Barcode Text Position (same as printBarcode)
+   * @param promise
+   */
+  override fun printBarcodeRaster(
+    data: String,
+    symbology: Double,
+    height: Double,
+    width: Double,
+    textPosition: Double,
+    promise: Promise
+  ) {
+    enqueueRaw(promise) { transport ->
+      val raster = BarcodeRasterizer.rasterCommand(data, symbology.toInt(), height.toInt(), width.toInt(),
+        transport.paperDots)
+      val position = textPosition.toInt()
+      withWriter(raster.size + 2 * data.length + 2) { writer ->
+        if (position == 1 || position == 3) writer.text(data).newLine()
+        writer.write(raster)
+        if (position == 2 || position == 3) writer.text(data).newLine()
+        transport.write(writer.buffer(), 0, writer.size())
+      }
+      null
     }
   }
 
@@ -341,35 +457,278 @@ class SunmiPrinterModule(reactContext: ReactApplicationContext) :
     errorLevel: Double,
     promise: Promise
   ) {
-    if (sunmiPrinterService == null) promise.reject("0", "Printer Service is not Connected")
-    try {
-      sunmiPrinterService!!.printQRCode(data, moduleSize.toInt(), errorLevel.toInt(), null)
-      promise.resolve(null)
-    } catch (e: RemoteException) {
-      promise.reject("0", e.message)
+    enqueue(promise) { service ->
+      service.printQRCode(data, moduleSize.toInt(), errorLevel.toInt(), resultCallback())
+      null
+    }
+  }
+
+  /**
+   * Print QR Codes side by side, rendered on the device and printed as a raster bitmap
+   * The encoded codes are cached, so repeated data (e.g. Wi-Fi or review link) is not encoded again
+   * @param dataArray     Array of QR Code data, one code for each item
+   * @param size          Width and height of each code in dots (rejected when the total width does not fit the paper)
+   * @param space         Gap between two codes in dots
+   * @param promise
+   */
+  override fun printQrCodes(dataArray: ReadableArray, size: Double, space: Double, promise: Promise) {
+    val codes = Array(dataArray.size()) { i -> dataArray.getString(i) ?: "" }
+    if (codes.isEmpty()) {
+      promise.reject("0", "No QR Code data")
+      return
+    }
+    enqueueRaw(promise) { transport ->
+      val raster = QrRasterizer.rasterCommand(codes, size.toInt(), space.toInt(), transport.paperDots)
+        ?: throw IllegalArgumentException("QR Code can not be encoded")
+      transport.write(raster)
+      null
     }
   }
 
 
   /**
    * Print Bitmap from Base-64 data
-   * @param data      Base-64 bitmap data (Maximum width of 384 pixels)
-   * @param width     Width must be less than 384 pixels and an integer multiple of 8
+   * The converted raster is cached, so printing the same image again skips decoding and conversion
+   * @param data          Base-64 bitmap data (Maximum width of 384 pixels)
+   * @param width         Width must be less than 384 pixels and an integer multiple of 8
    * @param height
+   * @param ditherMode    Dither Mode
+   *                          0 = None (hard threshold)
+   *                          1 = Floyd-Steinberg error diffusion
+   *                          2 = Atkinson error diffusion
+   *                          3 = Ordered (Bayer 8x8), fastest
    * @param promise
    */
-  override fun printBitmap(data: String, width: Double, height: Double, promise: Promise) {
-    if (sunmiPrinterService == null) promise.reject("0", "Printer Service is not Connected")
-    try {
-      val decodedData: ByteArray = Base64.decode(data, Base64.DEFAULT)
-      val bitmap: Bitmap = BitmapUtil.decodeBitmap(decodedData, width.toInt(), height.toInt())
-      sunmiPrinterService!!.printBitmap(bitmap, null)
-      promise.resolve(null)
-    } catch (e: Exception) {
-      promise.reject("0", e.message)
+  override fun printBitmap(data: String, width: Double, height: Double, ditherMode: Double, promise: Promise) {
+    enqueueRaw(promise) { transport ->
+      val raster = rasterizeBitmap(data, width.toInt(), height.toInt(), ditherMode.toInt())
+      transport.write(raster)
+      null
+    }
+  }
+
+  /**
+   * Print Bitmap from a local image file, without passing the image through the bridge
+   * The file is memory mapped to look up the converted raster cache and decoded straight from the file descriptor
+   * @param uri           Image file path, file:// or content:// URI
+   * @param width         Width must be less than 384 pixels and an integer multiple of 8
+   * @param height
+   * @param ditherMode    Dither Mode (see printBitmap)
+   * @param promise
+   */
+  override fun printBitmapFile(uri: String, width: Double, height: Double, ditherMode: Double, promise: Promise) {
+    enqueueRaw(promise) { transport ->
+      val raster = rasterizeBitmapFile(uri, width.toInt(), height.toInt(), ditherMode.toInt())
+      transport.write(raster)
+      null
+    }
+  }
+
+  /**
+   * Print a tall image from a local image file as a stream of fixed height bands
+   * The next bands are decoded and converted while the previous ones are sent to the printer, so the whole raster
+   * is never held in memory and printing starts after the first band (the converted image is not cached)
+   * @param uri           Image file path, file:// or content:// URI
+   * @param width         Width must be less than 384 pixels and an integer multiple of 8
+   * @param height        Maximum height, the image is only scaled down
+   * @param ditherMode    Dither Mode (see printBitmap)
+   * @param bandHeight    Number of rows per band
+   * @param promise
+   */
+  override fun streamBitmapFile(
+    uri: String,
+    width: Double,
+    height: Double,
+    ditherMode: Double,
+    bandHeight: Double,
+    promise: Promise
+  ) {
+    if (bandHeight < 1) {
+      promise.reject("0", "Band height must be at least 1")
+      return
+    }
+    enqueueRaw(promise) { transport ->
+      ParcelFileDescriptor.AutoCloseInputStream(openImageFile(uri)).use { input ->
+        val decoder = try {
+          RasterDecoder.newInstance(input.fd, width.toInt(), height.toInt(), ditherMode.toInt())
+        } catch (e: IOException) {
+          // Not supported by the region decoder, print it as a single raster
+          null
+        }
+
+        if (decoder == null) {
+          val raster = BitmapUtil.decodeRasterCommand(input.fd, width.toInt(), height.toInt(), ditherMode.toInt())
+            ?: throw IllegalArgumentException("Unable to decode the image file $uri")
+          transport.write(raster)
+        } else {
+          try {
+            RasterBandPipeline(decoder, bandHeight.toInt()).run { band ->
+              transport.write(band)
+            }
+          } finally {
+            decoder.recycle()
+          }
+        }
+      }
+      null
+    }
+  }
+
+  /**
+   * Register an Image to be printed later with printRegisteredImage()
+   * The image is decoded and converted once on the print job queue, registered images are never evicted from memory
+   * @param id            Image identifier
+   * @param data          Base-64 bitmap data
+   * @param width
+   * @param height
+   * @param ditherMode    Dither Mode (see printBitmap)
+   * @param promise
+   */
+  override fun registerImage(
+    id: String,
+    data: String,
+    width: Double,
+    height: Double,
+    ditherMode: Double,
+    promise: Promise
+  ) {
+    // Decoded and converted on the job queue worker, in order with the print jobs
+    enqueueJob(promise, PrintJobQueue.PRIORITY_NORMAL) {
+      registeredImages[id] = rasterizeBitmap(data, width.toInt(), height.toInt(), ditherMode.toInt())
+      null
+    }
+  }
+
+  /**
+   * Register an Image from a local image file to be printed later with printRegisteredImage()
+   * @param id            Image identifier
+   * @param uri           Image file path, file:// or content:// URI
+   * @param width
+   * @param height
+   * @param ditherMode    Dither Mode (see printBitmap)
+   * @param promise
+   */
+  override fun registerImageFile(
+    id: String,
+    uri: String,
+    width: Double,
+    height: Double,
+    ditherMode: Double,
+    promise: Promise
+  ) {
+    enqueueJob(promise, PrintJobQueue.PRIORITY_NORMAL) {
+      registeredImages[id] = rasterizeBitmapFile(uri, width.toInt(), height.toInt(), ditherMode.toInt())
+      null
+    }
+  }
+
+  /**
+   * Remove an Image registered with registerImage()
+   * @param id        Image identifier
+   * @param promise
+   */
+  override fun unregisterImage(id: String, promise: Promise) {
+    // Queued behind a pending registration of the same id
+    enqueueJob(promise, PrintJobQueue.PRIORITY_NORMAL) {
+      registeredImages.remove(id)
+      null
+    }
+  }
+
+  /**
+   * Print an Image registered with registerImage()
+   * @param id        Image identifier
+   * @param promise
+   */
+  override fun printRegisteredImage(id: String, promise: Promise) {
+    enqueueRaw(promise) { transport ->
+      transport.write(getRegisteredImage(id))
+      null
     }
   }
 
+  /**
+   * Get the statistics of the converted image cache
+   * @param promise   Resolved with { hits, misses, entries, bytes, registered }
+   */
+  override fun getImageCacheStats(promise: Promise) {
+    val stats = Arguments.createMap()
+    stats.putDouble("hits", rasterCache.hits.toDouble())
+    stats.putDouble("misses", rasterCache.misses.toDouble())
+    stats.putInt("entries", rasterCache.entryCount)
+    stats.putDouble("bytes", rasterCache.bytes.toDouble())
+    stats.putInt("registered", registeredImages.size)
+    promise.resolve(stats)
+  }
+
+  /**
+   * Clear the converted image cache, registered images are kept
+   * @param promise
+   */
+  override fun clearImageCache(promise: Promise) {
+    rasterCache.clear()
+    promise.resolve(null)
+  }
+
+  private fun rasterizeBitmap(data: String, width: Int, height: Int, ditherMode: Int): ByteArray {
+    val key = RasterCache.contentKey(data, width, height, ditherMode)
+    val cached = rasterCache.get(key)
+    if (cached != null) return cached
+
+    val decodedData: ByteArray = Base64.decode(data, Base64.DEFAULT)
+    val raster = BitmapUtil.decodeRasterCommand(decodedData, width, height, ditherMode)
+      ?: throw IllegalArgumentException("Unable to decode the bitmap data")
+
+    rasterCache.put(key, raster)
+    return raster
+  }
+
+  private fun rasterizeBitmapFile(uri: String, width: Int, height: Int, ditherMode: Int): ByteArray {
+    val descriptor = openImageFile(uri)
+    ParcelFileDescriptor.AutoCloseInputStream(descriptor).use { input ->
+      val channel = input.channel
+      // statSize is -1 for the pipes and sockets many content providers return, they can not be mapped
+      val content = if (descriptor.statSize < 0) null else try {
+        channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+      } catch (e: IOException) {
+        null
+      }
+      if (content == null) {
+        // Read once, the same bytes are hashed and decoded
+        val data = input.readBytes()
+        return cachedRaster(RasterCache.contentKey(ByteBuffer.wrap(data), width, height, ditherMode)) {
+          BitmapUtil.decodeRasterCommand(data, width, height, ditherMode)
+            ?: throw IllegalArgumentException("Unable to decode the image file $uri")
+        }
+      }
+      return cachedRaster(RasterCache.contentKey(content, width, height, ditherMode)) {
+        BitmapUtil.decodeRasterCommand(input.fd, width, height, ditherMode)
+          ?: throw IllegalArgumentException("Unable to decode the image file $uri")
+      }
+    }
+  }
+
+  private inline fun cachedRaster(key: String, rasterize: () -> ByteArray): ByteArray {
+    val cached = rasterCache.get(key)
+    if (cached != null) return cached
+    return rasterize().also { rasterCache.put(key, it) }
+  }
+
+  private fun openImageFile(uri: String): ParcelFileDescriptor {
+    val parsed = Uri.parse(uri)
+    return when (parsed.scheme) {
+      "content" -> mReactContext.contentResolver.openFileDescriptor(parsed, "r")
+        ?: throw FileNotFoundException("Unable to open $uri")
+      "file" -> ParcelFileDescriptor.open(File(parsed.path!!), ParcelFileDescriptor.MODE_READ_ONLY)
+      null -> ParcelFileDescriptor.open(File(uri), ParcelFileDescriptor.MODE_READ_ONLY)
+      else -> throw IllegalArgumentException("Unsupported image URI $uri")
+    }
+  }
+
+  private fun getRegisteredImage(id: String): ByteArray {
+    return registeredImages[id] ?: throw IllegalArgumentException("Image '$id' is not registered")
+  }
+
 
   /**
    * Open Cash Box
@@ -377,12 +736,9 @@ class SunmiPrinterModule(reactContext: ReactApplicationContext) :
    * @param promise
    */
   override fun openCashBox(promise: Promise) {
-    if (sunmiPrinterService == null) promise.reject("0", "Printer Service is not Connected")
-    try {
-      sunmiPrinterService!!.openDrawer(null)
-      promise.resolve(null)
-    } catch (e: RemoteException) {
-      promise.reject("0", e.message)
+    enqueue(promise, PrintJobQueue.PRIORITY_HIGH) { service ->
+      service.openDrawer(resultCallback())
+      null
     }
   }
 
@@ -393,12 +749,10 @@ class SunmiPrinterModule(reactContext: ReactApplicationContext) :
    * @param promise
    */
   override fun enterPrintBuffer(clean: Boolean, promise: Promise) {
-    if (sunmiPrinterService == null) promise.reject("0", "Printer Service is not Connected")
-    try {
-      sunmiPrinterService!!.enterPrinterBuffer(clean)
-      promise.resolve(null)
-    } catch (e: RemoteException) {
-      promise.reject("0", e.message)
+    enqueue(promise) { service ->
+      service.enterPrinterBuffer(clean)
+      printerBufferOpen = true
+      null
     }
   }
 
@@ -407,12 +761,13 @@ class SunmiPrinterModule(reactContext: ReactApplicationContext) :
    * @param promise
    */
   override fun commitPrinterBuffer(promise: Promise) {
-    if (sunmiPrinterService == null) promise.reject("0", "Printer Service is not Connected")
-    try {
-      sunmiPrinterService!!.commitPrinterBuffer()
-      promise.resolve(null)
-    } catch (e: RemoteException) {
-      promise.reject("0", e.message)
+    enqueue(promise) { service ->
+      if (awaitPrintResult) {
+        service.commitPrinterBufferWithCallback(resultCallback(true))
+      } else {
+        service.commitPrinterBuffer()
+      }
+      null
     }
   }
 
@@ -422,12 +777,540 @@ class SunmiPrinterModule(reactContext: ReactApplicationContext) :
    * @param promise
    */
   override fun exitPrinterBuffer(commit: Boolean, promise: Promise) {
-    if (sunmiPrinterService == null) promise.reject("0", "Printer Service is not Connected")
+    enqueue(promise) { service ->
+      printerBufferOpen = false
+      if (awaitPrintResult && commit) {
+        service.exitPrinterBufferWithCallback(true, resultCallback(true))
+      } else {
+        service.exitPrinterBuffer(commit)
+      }
+      null
+    }
+  }
+
+
+  /**
+   * Wait for the printer to report the completion of each call before resolving its promise
+   * When disabled (default) the promise is resolved as soon as the call is handed to the printer service
+   * @param enabled       Wire the InnerResultCallback of each call / committed buffer
+   * @param timeoutMs     Maximum time to wait for the printer, the promise is rejected afterwards
+   * @param promise
+   */
+  override fun setAwaitPrintResult(enabled: Boolean, timeoutMs: Double, promise: Promise) {
+    if (timeoutMs <= 0) {
+      promise.reject("0", "Timeout must be greater than 0")
+      return
+    }
+    printResultTimeoutMs = timeoutMs.toLong()
+    awaitPrintResult = enabled
+    promise.resolve(null)
+  }
+
+
+  /**
+   * Print a whole Document in a single call
+   * All operations are decoded first, then printed inside the printer buffer and committed at once
+   * While a buffer opened with enterPrintBuffer() is open, the document is added to it and printed by its commit
+   * @param operations    Array of print operations (see PrintOperation for the supported types)
+   * @param promise
+   */
+  override fun printDocument(operations: ReadableArray, promise: Promise) {
+    val document = try {
+      PrintOperation.fromReadableArray(operations)
+    } catch (e: Exception) {
+      promise.reject("0", e.message)
+      return
+    }
+    enqueue(promise) { service ->
+      runDocument(service, document)
+      null
+    }
+  }
+
+  /**
+   * Submit a whole Document as a print job and return immediately
+   * Jobs are printed one at a time by the job queue worker, highest priority first,
+   * the completion of each job is sent with the "onPrintJobComplete" event
+   * @param operations    Array of print operations (see PrintOperation for the supported types)
+   * @param priority      Job Priority: 0 = Low, 1 = Normal, 2 = High
+   * @param promise       Resolved with the job identifier
+   */
+  override fun submitJob(operations: ReadableArray, priority: Double, promise: Promise) {
     try {
-      sunmiPrinterService!!.exitPrinterBuffer(commit)
-      promise.resolve(null)
-    } catch (e: RemoteException) {
+      val document = PrintOperation.fromReadableArray(operations)
+      val jobId = jobQueue.submit(priority.toInt(), {
+        runDocument(requireService(), document)
+      }) { id, error ->
+        val event = Arguments.createMap()
+        event.putInt("jobId", id)
+        event.putBoolean("success", error == null)
+        if (error != null) event.putString("message", error.message)
+        sendEvent(EVENT_PRINT_JOB_COMPLETE, event)
+      }
+      promise.resolve(jobId)
+    } catch (e: Exception) {
+      promise.reject("0", e.message)
+    }
+  }
+
+  /**
+   * Get the number of calls and jobs waiting in the job queue
+   * @param promise
+   */
+  override fun getPendingJobCount(promise: Promise) {
+    promise.resolve(jobQueue.pendingCount())
+  }
+
+  /**
+   * Print a document inside its own printer buffer, or add it to the buffer opened with enterPrintBuffer(),
+   * which the caller commits
+   */
+  private fun runDocument(service: SunmiPrinterService, document: List<PrintOperation>) {
+    if (printerBufferOpen) {
+      writeDocument(service, document)
+      return
+    }
+    service.enterPrinterBuffer(true)
+    var committed = false
+    try {
+      writeDocument(service, document)
+      if (awaitPrintResult) {
+        service.exitPrinterBufferWithCallback(true, resultCallback(true))
+      } else {
+        service.exitPrinterBuffer(true)
+      }
+      committed = true
+    } finally {
+      if (!committed) {
+        discardResultCallbacks()
+        service.exitPrinterBuffer(false)
+      }
+    }
+    awaitResultCallbacks()
+  }
+
+  private fun writeDocument(service: SunmiPrinterService, document: List<PrintOperation>) {
+    withWriter { raw ->
+      for (operation in document) {
+        runOperation(service, operation, raw)
+      }
+      flushRaw(service, raw)
+    }
+  }
+
+  /**
+   * Run one operation of a document
+   * Raw commands (styles, images) are collected in raw and sent as one sendRAWData() right before the next
+   * service call, so adjacent raw commands cost a single binder transaction
+   */
+  private fun runOperation(service: SunmiPrinterService, operation: PrintOperation, raw: EscPosWriter) {
+    when (operation) {
+      is PrintOperation.Text -> {
+        if (operation.isBold) raw.bold(true)
+        if (operation.isUnderline) raw.underline(1)
+        flushRaw(service, raw)
+
+        if (operation.fontSize != null) {
+          service.printTextWithFont(operation.content, null, operation.fontSize, null)
+        } else {
+          service.printText(operation.content, null)
+        }
+
+        if (operation.isBold) raw.bold(false)
+        if (operation.isUnderline) raw.underline(0)
+      }
+      is PrintOperation.Bitmap -> queueRaw(service, raw,
+        rasterizeBitmap(operation.data, operation.width, operation.height, operation.ditherMode))
+      is PrintOperation.RegisteredImage -> queueRaw(service, raw, getRegisteredImage(operation.id))
+      else -> {
+        flushRaw(service, raw)
+        runServiceOperation(service, operation)
+      }
+    }
+  }
+
+  private fun runServiceOperation(service: SunmiPrinterService, operation: PrintOperation) {
+    when (operation) {
+      is PrintOperation.Init -> service.printerInit(null)
+      is PrintOperation.LineWrap -> service.lineWrap(operation.lines, null)
+      is PrintOperation.FeedPaper -> {
+        try {
+          service.autoOutPaper(null)
+        } catch (e: RemoteException) {
+          service.lineWrap(3, null)
+        }
+      }
+      is PrintOperation.Alignment -> service.setAlignment(operation.alignment, null)
+      is PrintOperation.FontSize -> service.setFontSize(operation.fontSize, null)
+      is PrintOperation.Table ->
+        service.printColumnsString(operation.contents, operation.widths, operation.alignments, null)
+      is PrintOperation.Barcode -> service.printBarCode(operation.data, operation.symbology,
+        operation.height, operation.width, operation.textPosition, null)
+      is PrintOperation.QrCode ->
+        service.printQRCode(operation.data, operation.moduleSize, operation.errorLevel, null)
+      is PrintOperation.OpenCashBox -> service.openDrawer(null)
+      else -> throw IllegalArgumentException("Operation ${operation.javaClass.simpleName} is not a service call")
+    }
+  }
+
+  /**
+   * Add raw data to the pending raw commands, large data is not copied but sent on its own
+   */
+  private fun queueRaw(service: SunmiPrinterService, raw: EscPosWriter, data: ByteArray) {
+    if (data.isEmpty()) return
+    if (raw.size() + data.size > RAW_COALESCE_MAX_BYTES) {
+      flushRaw(service, raw)
+    }
+    if (data.size > RAW_COALESCE_MAX_BYTES) {
+      service.sendRAWData(data, null)
+    } else {
+      raw.write(data)
+    }
+  }
+
+  private fun flushRaw(service: SunmiPrinterService, raw: EscPosWriter) {
+    if (raw.size() == 0) return
+    service.sendRAWData(raw.toByteArray(), null)
+    raw.reset()
+  }
+
+  /**
+   * Build raw commands in a pooled writer, the writer is recycled when the block returns
+   */
+  private inline fun <T> withWriter(minCapacity: Int = 1024, block: (EscPosWriter) -> T): T {
+    val writer = EscPosWriter.obtain(minCapacity)
+    try {
+      return block(writer)
+    } finally {
+      writer.recycle()
+    }
+  }
+
+
+  /**
+   * Send prebuilt raw ESC/POS commands given as a hex string (e.g. "1B 40 0A"), whitespace is ignored
+   * @param hex           Hex string of the commands
+   * @param promise
+   */
+  override fun sendRawHex(hex: String, promise: Promise) {
+    val data = try {
+      HexCodec.decode(hex)
+    } catch (e: IllegalArgumentException) {
       promise.reject("0", e.message)
+      return
+    }
+    sendRaw(data, promise)
+  }
+
+  /**
+   * Send prebuilt raw ESC/POS commands given as Base-64 data
+   * @param data          Base-64 data of the commands
+   * @param promise
+   */
+  override fun sendRawBytes(data: String, promise: Promise) {
+    val bytes = try {
+      Base64.decode(data, Base64.DEFAULT)
+    } catch (e: IllegalArgumentException) {
+      promise.reject("0", e.message)
+      return
+    }
+    sendRaw(bytes, promise)
+  }
+
+  private fun sendRaw(data: ByteArray, promise: Promise) {
+    if (data.isEmpty()) {
+      promise.reject("0", "No raw data")
+      return
+    }
+    enqueueRaw(promise) { transport ->
+      // Large blobs are sent in blocks that stay far below the binder transaction limit
+      var offset = 0
+      while (offset < data.size) {
+        val length = minOf(data.size - offset, RAW_COALESCE_MAX_BYTES)
+        transport.write(data, offset, length)
+        offset += length
+      }
+      null
+    }
+  }
+
+
+  /**
+   * Redirect the raw command jobs (raw documents, templates, tables, images, raster codes, raw data) away from
+   * the printer, to test and measure the native pipeline or capture golden outputs
+   * Service calls (text, buffers, status) still go to the printer service
+   * @param target        "sunmi" = printer service (default), "memory" = recorded in memory (see getRecordedRawData),
+   *                      a file path / file:// URI, or network printers "tcp://host:port" (comma separated for fan-out)
+   * @param paperWidth    Paper width in mm used for the layout (58 or 80), the printer service reports its own
+   * @param promise
+   */
+  override fun setRawTransport(target: String, paperWidth: Double, promise: Promise) {
+    val paperDots = if (paperWidth.toInt() == 58) 384 else 576
+    enqueueJob(promise, PrintJobQueue.PRIORITY_NORMAL) {
+      val transport: PrinterTransport? = when {
+        target.isEmpty() || target == "sunmi" -> null
+        target == "memory" -> RecordingTransport(paperDots)
+        target.startsWith("tcp://") -> {
+          val printers = target.split(',').map { NetworkPrinterPool.parseAddress(it.trim()) }
+          NetworkTransport(networkPool(), printers, paperDots, NETWORK_SEND_TIMEOUT_MS)
+        }
+        target.startsWith("file://") -> StreamTransport.open(File(Uri.parse(target).path ?: ""), paperDots)
+        target.startsWith("/") -> StreamTransport.open(File(target), paperDots)
+        else -> throw IllegalArgumentException("Unknown raw transport $target")
+      }
+      rawTransport?.close()
+      rawTransport = transport
+      null
+    }
+  }
+
+  /**
+   * Print a Document on network ESC/POS printers (raw TCP, port 9100 by default), e.g. kitchen printers
+   * The document is compiled once (same operations as printRawDocument) and written to every printer concurrently.
+   * Network jobs run on their own queue, so they never hold up the built-in printer
+   * @param addresses     Array of printer addresses ("host", "host:port" or "tcp://host:port")
+   * @param operations    Array of print operations (see PrintOperation for the supported types)
+   * @param paperWidth    Paper width of the printers in mm (58 or 80)
+   * @param promise
+   */
+  override fun printToNetwork(addresses: ReadableArray, operations: ReadableArray, paperWidth: Double, promise: Promise) {
+    val document = try {
+      PrintOperation.fromReadableArray(operations)
+    } catch (e: Exception) {
+      promise.reject("0", e.message)
+      return
+    }
+    val targets = Array(addresses.size()) { i -> addresses.getString(i) ?: "" }
+    if (targets.isEmpty()) {
+      promise.reject("0", "No printer address")
+      return
+    }
+    val paperDots = if (paperWidth.toInt() == 58) 384 else 576
+
+    try {
+      networkQueue().submit(PrintJobQueue.PRIORITY_NORMAL, {
+        val printers = targets.map { NetworkPrinterPool.parseAddress(it) }
+        NetworkTransport(networkPool(), printers, paperDots, NETWORK_SEND_TIMEOUT_MS).use { transport ->
+          val layout = LineLayout(transport.paperDots)
+          withWriter { writer ->
+            for (operation in document) {
+              writeOperation(writer, operation, layout)
+            }
+            transport.write(writer.buffer(), 0, writer.size())
+          }
+          transport.flush()
+        }
+        promise.resolve(null)
+      }) { _, error ->
+        if (error != null) promise.reject("0", error.message)
+      }
+    } catch (e: Exception) {
+      promise.reject("0", e.message)
+    }
+  }
+
+  /**
+   * Shared network printer pool, replaced when it stopped (e.g. its selector thread failed)
+   */
+  @Synchronized
+  private fun networkPool(): NetworkPrinterPool {
+    networkPool?.let { if (!it.isClosed) return it }
+    return NetworkPrinterPool(NETWORK_MAX_PENDING_BYTES, CONNECT_TIMEOUT_MS, NETWORK_IDLE_TIMEOUT_MS)
+      .also { networkPool = it }
+  }
+
+  @Synchronized
+  private fun networkQueue(): PrintJobQueue {
+    return networkQueue ?: PrintJobQueue("SunmiPrinterNetworkQueue").also { networkQueue = it }
+  }
+
+  /**
+   * Get the raw commands recorded by the "memory" raw transport, and clear the recording
+   * @param promise       Resolved with the Base-64 data of the commands
+   */
+  override fun getRecordedRawData(promise: Promise) {
+    enqueueJob(promise, PrintJobQueue.PRIORITY_NORMAL) {
+      val recording = rawTransport as? RecordingTransport
+        ?: throw IllegalStateException("Raw transport is not recording")
+      val data = recording.toByteArray()
+      recording.reset()
+      Base64.encodeToString(data, Base64.NO_WRAP)
+    }
+  }
+
+
+  /**
+   * Print a whole Document as raw ESC/POS
+   * All operations are compiled into a single byte stream and sent to the printer with one sendRAWData()
+   * Font sizes are mapped to ESC/POS character size multipliers of the default 24px font
+   * @param operations    Array of print operations (see PrintOperation for the supported types)
+   * @param promise
+   */
+  override fun printRawDocument(operations: ReadableArray, promise: Promise) {
+    val document = try {
+      PrintOperation.fromReadableArray(operations)
+    } catch (e: Exception) {
+      promise.reject("0", e.message)
+      return
+    }
+    enqueueRaw(promise) { transport ->
+      val layout = LineLayout(transport.paperDots)
+
+      withWriter { writer ->
+        for (operation in document) {
+          writeOperation(writer, operation, layout)
+        }
+        transport.write(writer.buffer(), 0, writer.size())
+      }
+      null
+    }
+  }
+
+  /**
+   * @param layout    Character size in effect, updated by the operations changing it
+   */
+  private fun writeOperation(writer: EscPosWriter, operation: PrintOperation, layout: LineLayout) {
+    when (operation) {
+      is PrintOperation.Init -> {
+        writer.init()
+        layout.scale = 1
+      }
+      is PrintOperation.LineWrap -> writer.feed(operation.lines)
+      is PrintOperation.FeedPaper -> writer.feed(3)
+      is PrintOperation.Alignment -> writer.align(operation.alignment)
+      is PrintOperation.FontSize -> {
+        layout.scale = fontScale(operation.fontSize)
+        writer.characterSize(layout.scale, layout.scale)
+      }
+      is PrintOperation.Text -> {
+        writeTextStart(writer, operation, layout)
+        writer.text(operation.content)
+        writeTextEnd(writer, operation, layout)
+      }
+      is PrintOperation.Table ->
+        writer.tableRow(operation.contents, operation.widths, operation.alignments, layout.lineChars)
+      is PrintOperation.Barcode -> writer.barcode(operation.data, operation.symbology,
+        operation.height, operation.width, operation.textPosition)
+      is PrintOperation.QrCode -> writer.qrCode(operation.data, operation.moduleSize, operation.errorLevel)
+      is PrintOperation.Bitmap ->
+        writer.write(rasterizeBitmap(operation.data, operation.width, operation.height, operation.ditherMode))
+      is PrintOperation.RegisteredImage -> writer.write(getRegisteredImage(operation.id))
+      is PrintOperation.OpenCashBox -> writer.openCashBox()
+    }
+  }
+
+  private fun writeTextStart(writer: EscPosWriter, operation: PrintOperation.Text, layout: LineLayout) {
+    if (operation.fontSize != null) {
+      layout.scale = fontScale(operation.fontSize)
+      writer.characterSize(layout.scale, layout.scale)
+    }
+    if (operation.isBold) writer.bold(true)
+    if (operation.isUnderline) writer.underline(1)
+  }
+
+  private fun writeTextEnd(writer: EscPosWriter, operation: PrintOperation.Text, layout: LineLayout) {
+    if (operation.isBold) writer.bold(false)
+    if (operation.isUnderline) writer.underline(0)
+    if (operation.fontSize != null) {
+      writer.characterSize(1, 1)
+      layout.scale = 1
+    }
+  }
+
+  private fun fontScale(fontSize: Float): Int {
+    return Math.round(fontSize / 24f).coerceIn(1, 8)
+  }
+
+  /**
+   * Number of half-width characters per line for the paper of the printer
+   */
+  private fun paperLineChars(transport: PrinterTransport, scale: Int): Int {
+    return TextLayout.columnsPerLine(transport.paperDots, scale)
+  }
+
+
+  /**
+   * Register a receipt Template to be printed later with printTemplate()
+   * Texts, table columns, barcode and QR code data can hold {{key}} placeholders, everything else is compiled
+   * into raw ESC/POS once
+   * @param id            Template identifier
+   * @param operations    Array of print operations (same as printRawDocument)
+   * @param promise       Resolved with the placeholder keys of the template
+   */
+  override fun registerTemplate(id: String, operations: ReadableArray, promise: Promise) {
+    try {
+      val template = PrintTemplate(PrintOperation.fromReadableArray(operations))
+      templates[id] = template
+      promise.resolve(Arguments.fromList(template.keys.toList()))
+    } catch (e: Exception) {
+      promise.reject("0", e.message)
+    }
+  }
+
+  /**
+   * Remove a Template registered with registerTemplate()
+   * @param id        Template identifier
+   * @param promise
+   */
+  override fun unregisterTemplate(id: String, promise: Promise) {
+    templates.remove(id)
+    promise.resolve(null)
+  }
+
+  /**
+   * Print a Template registered with registerTemplate() as raw ESC/POS
+   * @param id        Template identifier
+   * @param values    Value of every placeholder key (strings or numbers)
+   * @param promise
+   */
+  override fun printTemplate(id: String, values: ReadableMap, promise: Promise) {
+    val template = templates[id]
+    if (template == null) {
+      promise.reject("0", "Template '$id' is not registered")
+      return
+    }
+    val templateValues = HashMap<String, String>()
+    val iterator = values.keySetIterator()
+    while (iterator.hasNextKey()) {
+      val key = iterator.nextKey()
+      templateValues[key] = when (values.getType(key)) {
+        ReadableType.Number -> formatNumber(values.getDouble(key))
+        ReadableType.Boolean -> values.getBoolean(key).toString()
+        ReadableType.Null -> ""
+        else -> values.getString(key) ?: ""
+      }
+    }
+
+    enqueueRaw(promise) { transport ->
+      withWriter { writer ->
+        template.render(writer, transport.paperDots, templateValues, templateWriter())
+        transport.write(writer.buffer(), 0, writer.size())
+      }
+      null
+    }
+  }
+
+  private fun templateWriter(): PrintTemplate.OperationWriter {
+    return object : PrintTemplate.OperationWriter {
+      override fun write(writer: EscPosWriter, operation: PrintOperation, layout: LineLayout) {
+        writeOperation(writer, operation, layout)
+      }
+
+      override fun writeTextStart(writer: EscPosWriter, operation: PrintOperation.Text, layout: LineLayout) {
+        this@SunmiPrinterModule.writeTextStart(writer, operation, layout)
+      }
+
+      override fun writeTextEnd(writer: EscPosWriter, operation: PrintOperation.Text, layout: LineLayout) {
+        this@SunmiPrinterModule.writeTextEnd(writer, operation, layout)
+      }
+    }
+  }
+
+  private fun formatNumber(value: Double): String {
+    return if (value == Math.floor(value) && !value.isInfinite() && Math.abs(value) < 1e15) {
+      value.toLong().toString()
+    } else {
+      value.toString()
     }
   }
 
@@ -437,29 +1320,175 @@ class SunmiPrinterModule(reactContext: ReactApplicationContext) :
    * @param promise
    */
   override fun showPrinterStatus(promise: Promise) {
-    if (sunmiPrinterService == null) promise.reject("0", "Printer Service is not Connected")
+    enqueue(promise) { service ->
+      val status = PrinterStatusMonitor.describe(service.updatePrinterState())
+      UiThreadUtil.runOnUiThread {
+        Toast.makeText(mReactContext, status, Toast.LENGTH_LONG).show()
+      }
+      null
+    }
+  }
+
+  /**
+   * Get the status of the printer
+   * The state is read right away, it does not wait for the queued print jobs
+   * @param promise   Resolved with { code, message }
+   *                      1 = Printer is running
+   *                      2 = Printer found but still initializing
+   *                      3 = Printer hardware interface is abnormal
+   *                      4 = Printer is out of paper
+   *                      5 = Printer is overheating
+   *                      6 = Printer's cover is not closed
+   *                      7 = Printer's cutter is abnormal
+   *                      8 = Printer's cutter is normal
+   *                      9 = Black Mark Paper is not found
+   *                      505 = Printer does not exist
+   */
+  override fun getPrinterStatus(promise: Promise) {
+    val service = connectionManager.getService()
+    if (service == null) {
+      promise.reject("0", "Printer Service is not Connected")
+      return
+    }
     try {
-      var status = ""
-      val printerState = sunmiPrinterService!!.updatePrinterState()
-      when (printerState) {
-        1 -> status = "Printer is running"
-        2 -> status = "Printer found but still initializing"
-        3 -> status = "Printer hardware interface is abnormal and needs to be reprinted"
-        4 -> status = "Printer is out of paper"
-        5 -> status = "Printer is overheating"
-        6 -> status = "Printer's cover is not closed"
-        7 -> status = "Printer's cutter is abnormal"
-        8 -> status = "Printer's cutter is normal"
-        9 -> status = "Black Mark Paper is not found"
-        505 -> status = "Printer does not exist"
-        else -> {}
-      }
-
-      Toast.makeText(mReactContext, status, Toast.LENGTH_LONG).show()
-      promise.resolve(null)
+      promise.resolve(statusEvent(service.updatePrinterState()))
     } catch (e: RemoteException) {
-      e.printStackTrace()
       promise.reject("0", e.message)
     }
   }
+
+  /**
+   * Start polling the printer status in the background
+   * Only the changes are sent with the "onPrinterStatusChange" event, -1 is sent while the service is not connected
+   * @param intervalMs    Polling interval
+   * @param promise
+   */
+  override fun startStatusMonitor(intervalMs: Double, promise: Promise) {
+    if (intervalMs < MIN_STATUS_INTERVAL_MS) {
+      promise.reject("0", "Interval must be at least $MIN_STATUS_INTERVAL_MS ms")
+      return
+    }
+    statusMonitor.start(intervalMs.toLong())
+    promise.resolve(null)
+  }
+
+  /**
+   * Stop polling the printer status
+   * @param promise
+   */
+  override fun stopStatusMonitor(promise: Promise) {
+    statusMonitor.stop()
+    promise.resolve(null)
+  }
+
+  private fun statusEvent(code: Int): WritableMap {
+    val status = Arguments.createMap()
+    status.putInt("code", code)
+    status.putString("message", PrinterStatusMonitor.describe(code))
+    return status
+  }
+
+
+  /**
+   * Run a printer call on the job queue worker, so calls never interleave with a running job
+   * The promise is resolved with the value returned by the block, or rejected when it throws
+   */
+  private fun enqueue(
+    promise: Promise,
+    priority: Int = PrintJobQueue.PRIORITY_NORMAL,
+    block: (SunmiPrinterService) -> Any?
+  ) {
+    enqueueJob(promise, priority) { block(requireService()) }
+  }
+
+  /**
+   * Run a raw command job on the job queue worker, the commands go to the raw transport set with
+   * setRawTransport(), or to the printer service by default
+   */
+  private fun enqueueRaw(
+    promise: Promise,
+    priority: Int = PrintJobQueue.PRIORITY_NORMAL,
+    block: (PrinterTransport) -> Any?
+  ) {
+    enqueueJob(promise, priority) {
+      val transport = rawTransport ?: SunmiTransport(requireService()) { resultCallback() }
+      val result = block(transport)
+      transport.flush()
+      result
+    }
+  }
+
+  private fun enqueueJob(promise: Promise, priority: Int, block: () -> Any?) {
+    try {
+      jobQueue.submit(priority, {
+        val result = try {
+          block()
+        } catch (e: Exception) {
+          discardResultCallbacks()
+          throw e
+        }
+        awaitResultCallbacks()
+        promise.resolve(result)
+      }) { _, error ->
+        if (error != null) promise.reject(errorCode(error), error.message)
+      }
+    } catch (e: Exception) {
+      promise.reject("0", e.message)
+    }
+  }
+
+  private fun errorCode(error: Exception): String {
+    return if (error is PrintResultCallback.PrintResultException) error.code.toString() else "0"
+  }
+
+  /**
+   * Callback to pass to a printer service call of the current job
+   * @param waitForPrintResult    Wait for the print result of a committed buffer instead of the run result
+   * @return    null when the print completion is not awaited
+   */
+  private fun resultCallback(waitForPrintResult: Boolean = false): PrintResultCallback? {
+    if (!awaitPrintResult) return null
+    val callback = PrintResultCallback(waitForPrintResult)
+    jobResultCallbacks.add(callback)
+    return callback
+  }
+
+  /**
+   * Block the job queue worker until every callback of the current job is settled
+   */
+  private fun awaitResultCallbacks() {
+    try {
+      for (callback in jobResultCallbacks) {
+        callback.await(printResultTimeoutMs)
+      }
+    } finally {
+      jobResultCallbacks.clear()
+    }
+  }
+
+  private fun discardResultCallbacks() {
+    jobResultCallbacks.clear()
+  }
+
+  /**
+   * Printer service for the current job, waits while the service is still (re)connecting
+   */
+  private fun requireService(): SunmiPrinterService {
+    return connectionManager.awaitService(CONNECT_TIMEOUT_MS)
+  }
+
+  private fun sendEvent(eventName: String, params: WritableMap) {
+    if (!mReactContext.hasActiveReactInstance()) return
+    mReactContext
+      .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter::class.java)
+      .emit(eventName, params)
+  }
+
+  override fun addListener(eventName: String) {
+    // Required for NativeEventEmitter, events are always sent
+  }
+
+  override fun removeListeners(count: Double) {
+    // Required for NativeEventEmitter, events are always sent
+  }
 }
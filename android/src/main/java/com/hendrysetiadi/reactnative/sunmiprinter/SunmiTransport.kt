@@ -0,0 +1,39 @@
+package com.hendrysetiadi.reactnative.sunmiprinter
+
+import com.hendrysetiadi.reactnative.sunmiprinter.utils.PrinterTransport
+import com.sunmi.peripheral.printer.InnerResultCallback
+import com.sunmi.peripheral.printer.SunmiPrinterService
+
+/**
+ * Transport sending raw commands to the Sunmi printer service with sendRAWData()
+ * @param service             Bound printer service
+ * @param callbackProvider    Result callback for each call, null when the result is not awaited
+ */
+class SunmiTransport(
+  private val service: SunmiPrinterService,
+  private val callbackProvider: () -> InnerResultCallback?
+) : PrinterTransport {
+  private val paperWidthDots by lazy { if (service.printerPaper == 1) 384 else 576 }
+
+  override fun getPaperDots(): Int {
+    return paperWidthDots
+  }
+
+  override fun write(data: ByteArray) {
+    service.sendRAWData(data, callbackProvider())
+  }
+
+  override fun write(data: ByteArray, offset: Int, length: Int) {
+    // The AIDL call takes whole arrays only
+    val chunk = if (offset == 0 && length == data.size) data else data.copyOfRange(offset, offset + length)
+    service.sendRAWData(chunk, callbackProvider())
+  }
+
+  override fun flush() {
+    // Every write is already a service call
+  }
+
+  override fun close() {
+    // The service binding is owned by PrinterConnectionManager
+  }
+}
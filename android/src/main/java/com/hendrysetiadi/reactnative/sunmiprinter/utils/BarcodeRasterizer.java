@@ -0,0 +1,182 @@
+package com.hendrysetiadi.reactnative.sunmiprinter.utils;
+
+import com.google.zxing.oned.CodaBarWriter;
+import com.google.zxing.oned.Code128Writer;
+import com.google.zxing.oned.Code39Writer;
+import com.google.zxing.oned.EAN13Writer;
+import com.google.zxing.oned.EAN8Writer;
+import com.google.zxing.oned.ITFWriter;
+import com.google.zxing.oned.OneDimensionalCodeWriter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One-dimensional barcodes rendered on the host and printed as a raster bitmap (GS v 0)
+ * Used for symbologies and module widths the printer firmware does not render well (e.g. GS1-128, 1 dot modules)
+ * Symbologies use the printBarcode() numbering, plus 9 = GS1-128. UPC-E and CODE93 are not supported
+ */
+public class BarcodeRasterizer {
+  public static final int UPC_A = 0;
+  public static final int EAN13 = 2;
+  public static final int EAN8 = 3;
+  public static final int CODE39 = 4;
+  public static final int ITF = 5;
+  public static final int CODABAR = 6;
+  public static final int CODE128 = 8;
+  public static final int GS1_128 = 9;
+
+  /**
+   * Quiet zone on each side of the bars, in modules
+   */
+  public static final int QUIET_ZONE_MODULES = 10;
+
+  // Code128Writer escape for the FNC1 function character
+  private static final char FNC1 = '\u00f1';
+  // GS1 separator of variable length fields in the element string
+  private static final char GS1_SEPARATOR = '\u001d';
+
+  private static final int ENCODING_CACHE_SIZE = 64;
+
+  // Writers keep no state, one instance of each serves every thread
+  private static final OneDimensionalCodeWriter[] WRITERS = new OneDimensionalCodeWriter[GS1_128 + 1];
+
+  static {
+    WRITERS[EAN13] = new EAN13Writer();
+    // UPCAWriter is not a OneDimensionalCodeWriter, it encodes UPC-A as EAN-13 with a leading 0 (see contents())
+    WRITERS[UPC_A] = WRITERS[EAN13];
+    WRITERS[EAN8] = new EAN8Writer();
+    WRITERS[CODE39] = new Code39Writer();
+    WRITERS[ITF] = new ITFWriter();
+    WRITERS[CODABAR] = new CodaBarWriter();
+    WRITERS[CODE128] = new Code128Writer();
+    WRITERS[GS1_128] = WRITERS[CODE128];
+  }
+
+  private static final LinkedHashMap<String, boolean[]> ENCODING_CACHE =
+    new LinkedHashMap<String, boolean[]>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, boolean[]> eldest) {
+        return size() > ENCODING_CACHE_SIZE;
+      }
+    };
+
+  public static boolean isSupported(int symbology) {
+    return symbology >= 0 && symbology < WRITERS.length && WRITERS[symbology] != null;
+  }
+
+  /**
+   * Encode barcode data into modules (true = bar), cached by symbology and data
+   * The returned array is shared and must not be modified
+   * UPC-A data has 11 digits (check digit added) or 12 digits
+   * CODE128 data may start with the printer code set prefix ({A, {B, {C), the encoder picks the code sets itself
+   * GS1-128 data is the element string, variable length fields are ended by a GS (0x1D) character
+   * @throws IllegalArgumentException when the symbology is not supported or the data is not valid for it
+   */
+  public static boolean[] encode(String data, int symbology) {
+    if (!isSupported(symbology)) {
+      throw new IllegalArgumentException("Barcode symbology " + symbology + " is not supported");
+    }
+    String key = symbology + ":" + data;
+    synchronized (ENCODING_CACHE) {
+      boolean[] cached = ENCODING_CACHE.get(key);
+      if (cached != null) {
+        return cached;
+      }
+    }
+    boolean[] modules = WRITERS[symbology].encode(contents(data, symbology));
+    synchronized (ENCODING_CACHE) {
+      ENCODING_CACHE.put(key, modules);
+    }
+    return modules;
+  }
+
+  private static String contents(String data, int symbology) {
+    if (symbology == UPC_A) {
+      return "0" + upcA(data);
+    }
+    if (symbology == CODE128 && data.length() >= 2 && data.charAt(0) == '{'
+      && data.charAt(1) >= 'A' && data.charAt(1) <= 'C') {
+      return data.substring(2);
+    }
+    if (symbology == GS1_128) {
+      return FNC1 + data.replace(GS1_SEPARATOR, FNC1);
+    }
+    return data;
+  }
+
+  /**
+   * UPC-A data with its check digit, as UPCAWriter expects it
+   */
+  private static String upcA(String data) {
+    int length = data.length();
+    if (length != 11 && length != 12) {
+      throw new IllegalArgumentException("UPC-A data must be 11 or 12 digits long, got " + length);
+    }
+    int sum = 0;
+    for (int i = 0; i < length; i++) {
+      char c = data.charAt(i);
+      if (c < '0' || c > '9') {
+        throw new IllegalArgumentException("UPC-A data must only hold digits");
+      }
+      if (i < 11) {
+        sum += (c - '0') * (i % 2 == 0 ? 3 : 1);
+      }
+    }
+    return length == 12 ? data : data + (1000 - sum) % 10;
+  }
+
+  /**
+   * Render a barcode into a raster bitmap command (GS v 0)
+   * The quiet zone is narrowed when the barcode would not fit the paper otherwise
+   * @param height        Bar height in dots (1 - 65535)
+   * @param moduleWidth   Width of the narrowest bar in dots (1 - 6)
+   * @param maxWidth      Printable width of the paper in dots
+   * @throws IllegalArgumentException when the barcode does not fit the paper even without quiet zone
+   */
+  public static byte[] rasterCommand(String data, int symbology, int height, int moduleWidth, int maxWidth) {
+    if (height < 1 || height > 0xFFFF) {
+      throw new IllegalArgumentException("Barcode height must be between 1 and 65535");
+    }
+    if (moduleWidth < 1 || moduleWidth > 6) {
+      throw new IllegalArgumentException("Barcode width must be between 1 and 6");
+    }
+    boolean[] modules = encode(data, symbology);
+    int barsWidth = modules.length * moduleWidth;
+    if (barsWidth > maxWidth) {
+      throw new IllegalArgumentException("Barcode is " + barsWidth + " dots wide, the paper only fits " + maxWidth);
+    }
+    int quietZone = Math.min(QUIET_ZONE_MODULES * moduleWidth, (maxWidth - barsWidth) / 2);
+    int bytesPerRow = (barsWidth + 2 * quietZone + 7) / 8;
+
+    byte[] rv = new byte[8 + bytesPerRow * height];
+    rv[0] = ESCUtil.GS;
+    rv[1] = 0x76;
+    rv[2] = 0x30;
+    rv[3] = 0x00;
+    rv[4] = (byte) bytesPerRow;//xL
+    rv[5] = (byte) (bytesPerRow >> 8);//xH
+    rv[6] = (byte) height;
+    rv[7] = (byte) (height >> 8);
+
+    // Every row of a 1D barcode is the same: pack the first one, then copy it down
+    int dot = quietZone;
+    for (boolean bar : modules) {
+      if (bar) {
+        for (int end = dot + moduleWidth; dot < end; dot++) {
+          rv[8 + (dot >> 3)] |= (byte) (0x80 >>> (dot & 7));
+        }
+      } else {
+        dot += moduleWidth;
+      }
+    }
+    int filled = bytesPerRow;
+    int total = bytesPerRow * height;
+    while (filled < total) {
+      int n = Math.min(filled, total - filled);
+      System.arraycopy(rv, 8, rv, 8 + filled, n);
+      filled += n;
+    }
+    return rv;
+  }
+}
@@ -2,44 +2,12 @@ package com.hendrysetiadi.reactnative.sunmiprinter.utils;
 
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
-import android.graphics.Canvas;
-import android.graphics.Matrix;
-import android.graphics.Paint;
 import android.graphics.Rect;
-import android.graphics.RectF;
 
-public class BitmapUtil {
-  private static Bitmap createBitmap(Bitmap source, int x, int y, int width, int height, Matrix m) {
-    // Re-implement Bitmap createBitmap() to always return a mutable bitmap.
-    Canvas canvas = new Canvas();
-
-    Bitmap bitmap;
-    Paint paint;
-    if ((m == null) || m.isIdentity()) {
-      bitmap = Bitmap.createBitmap(width, height, source.getConfig());
-      paint = null;
-    } else {
-      RectF rect = new RectF(0, 0, width, height);
-      m.mapRect(rect);
-      bitmap = Bitmap.createBitmap(Math.round(rect.width()), Math.round(rect.height()), source.getConfig());
-
-      canvas.translate(-rect.left, -rect.top);
-      canvas.concat(m);
-
-      paint = new Paint(Paint.FILTER_BITMAP_FLAG);
-      if (!m.rectStaysRect()) {
-        paint.setAntiAlias(true);
-      }
-    }
-    bitmap.setDensity(source.getDensity());
-    canvas.setBitmap(bitmap);
-
-    Rect srcBounds = new Rect(x, y, x + width, y + height);
-    RectF dstBounds = new RectF(0, 0, width, height);
-    canvas.drawBitmap(source, srcBounds, dstBounds, paint);
-    return bitmap;
-  }
+import java.io.FileDescriptor;
+import java.io.IOException;
 
+public class BitmapUtil {
   public static Rect getBitmapBounds(byte[] data){
     Rect bounds = new Rect();
     try {
@@ -54,46 +22,153 @@ public class BitmapUtil {
     return bounds;
   }
 
-  public static Bitmap decodeBitmap(byte[] data, int width, int height){
-    Bitmap bitmap = null;
+  /**
+   * Read the image size straight from a file descriptor, the position of the descriptor is kept
+   */
+  public static Rect getBitmapBounds(FileDescriptor fd){
+    Rect bounds = new Rect();
     try {
-      Rect bounds = getBitmapBounds(data);
-      int sampleSize = Math.max(bounds.width() / width, bounds.height() / height);
-      sampleSize = Math.min(sampleSize,
-        Math.max(bounds.width() / height, bounds.height() / width));
-
       BitmapFactory.Options options = new BitmapFactory.Options();
-      options.inSampleSize = Math.max(sampleSize, 1);
-      options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+      options.inJustDecodeBounds = true;
+      BitmapFactory.decodeFileDescriptor(fd, null, options);
+      bounds.right = options.outWidth;
+      bounds.bottom = options.outHeight;
+    } catch (Exception e) {
+    }
+    return bounds;
+  }
+
+  /**
+   * Scale factor fitting the image in width x height (either orientation), never above 1
+   */
+  public static float getScale(int srcWidth, int srcHeight, int width, int height) {
+    if (srcWidth <= 0 || srcHeight <= 0) {
+      return 1;
+    }
+    float scale = Math.min((float) width / srcWidth, (float) height / srcHeight);
+    scale = Math.max(scale, Math.min((float) height / srcWidth, (float) width / srcHeight));
+    return Math.min(scale, 1);
+  }
+
+  /**
+   * Largest power of 2 sub-sampling that still keeps the image at or above the scale
+   */
+  public static int getSampleSize(float scale) {
+    int sampleSize = 1;
+    while (scale > 0 && sampleSize * 2 * scale <= 1) {
+      sampleSize *= 2;
+    }
+    return sampleSize;
+  }
 
-      bitmap = BitmapFactory.decodeByteArray(data, 0, data.length, options);//!!!!溢出
+  /**
+   * Decode an image straight into a raster bitmap command (GS v 0), strip by strip so the full size
+   * image is never held in memory
+   * Formats not supported by BitmapRegionDecoder (e.g. GIF, BMP) fall back to decodeBitmap()
+   * @param ditherMode    One of the RasterEncoder.DITHER_* modes
+   * @return              null when the image can not be decoded
+   */
+  public static byte[] decodeRasterCommand(byte[] data, int width, int height, int ditherMode) {
+    RasterDecoder decoder;
+    try {
+      decoder = RasterDecoder.newInstance(data, width, height, ditherMode);
+    } catch (IOException e) {
+      return toRasterCommand(decodeBitmap(data, width, height), ditherMode);
+    }
+    try {
+      return decoder.decodeRasterCommand(0);
+    } finally {
+      decoder.recycle();
+    }
+  }
+
+  /**
+   * Decode an image file straight into a raster bitmap command (GS v 0), strip by strip
+   * @param fd            Image file, read from its start
+   */
+  public static byte[] decodeRasterCommand(FileDescriptor fd, int width, int height, int ditherMode) {
+    RasterDecoder decoder;
+    try {
+      decoder = RasterDecoder.newInstance(fd, width, height, ditherMode);
+    } catch (IOException e) {
+      return toRasterCommand(decodeBitmap(fd, width, height), ditherMode);
+    }
+    try {
+      return decoder.decodeRasterCommand(0);
+    } finally {
+      decoder.recycle();
+    }
+  }
+
+  private static byte[] toRasterCommand(Bitmap bitmap, int ditherMode) {
+    if (bitmap == null) {
+      return null;
+    }
+    byte[] raster = ESCUtil.printBitmap(bitmap, 0, ditherMode);
+    bitmap.recycle();
+    return raster;
+  }
+
+  public static Bitmap decodeBitmap(byte[] data, int width, int height){
+    Bitmap bitmap = null;
+    try {
+      BitmapFactory.Options options = getDecodeOptions(getBitmapBounds(data), width, height);
+      bitmap = BitmapFactory.decodeByteArray(data, 0, data.length, options);
     } catch (Exception e) {
     } finally {
       data = null;
     }
+    return scaleBitmap(bitmap, width, height);
+  }
+
+  /**
+   * Decode an image straight from a file descriptor (file or content URI)
+   * The encoded bytes are read by the native decoder, nothing is copied into the Java heap
+   */
+  public static Bitmap decodeBitmap(FileDescriptor fd, int width, int height){
+    Bitmap bitmap = null;
+    try {
+      BitmapFactory.Options options = getDecodeOptions(getBitmapBounds(fd), width, height);
+      bitmap = BitmapFactory.decodeFileDescriptor(fd, null, options);
+    } catch (Exception e) {
+    }
+    return scaleBitmap(bitmap, width, height);
+  }
+
+  private static BitmapFactory.Options getDecodeOptions(Rect bounds, int width, int height) {
+    float scale = getScale(bounds.width(), bounds.height(), width, height);
 
-    // Ensure bitmap in 8888 format, good for editing as well as GL compatible.
-    if ((bitmap != null) && (bitmap.getConfig() != Bitmap.Config.ARGB_8888)) {
-      Bitmap copy = bitmap.copy(Bitmap.Config.ARGB_8888, true);
-      bitmap.recycle();
-      bitmap = copy;
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inSampleSize = getSampleSize(scale);
+    options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+
+    // Let the decoder scale the rest of the way, so no second full size bitmap is needed
+    int sampledWidth = bounds.width() / options.inSampleSize;
+    int targetWidth = Math.round(bounds.width() * scale);
+    if (targetWidth > 0 && targetWidth < sampledWidth) {
+      options.inScaled = true;
+      options.inDensity = sampledWidth;
+      options.inTargetDensity = targetWidth;
     }
+    return options;
+  }
 
-    if (bitmap != null) {
-      // Scale down the sampled bitmap if it's still larger than the desired dimension.
-      float scale = Math.min((float) width / bitmap.getWidth(),
-        (float) height / bitmap.getHeight());
-      scale = Math.max(scale, Math.min((float) height / bitmap.getWidth(),
-        (float) width / bitmap.getHeight()));
-      if (scale < 1) {
-        Matrix m = new Matrix();
-        m.setScale(scale, scale);
-        Bitmap transformed = createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), m);
+  private static Bitmap scaleBitmap(Bitmap bitmap, int width, int height) {
+    if (bitmap == null) {
+      return null;
+    }
+
+    // Scale down the decoded bitmap if it's still larger than the desired dimension (decoders without density scaling)
+    float scale = getScale(bitmap.getWidth(), bitmap.getHeight(), width, height);
+    int targetWidth = Math.max(Math.round(bitmap.getWidth() * scale), 1);
+    int targetHeight = Math.max(Math.round(bitmap.getHeight() * scale), 1);
+    if (targetWidth < bitmap.getWidth() - 1) {
+      Bitmap scaled = Bitmap.createScaledBitmap(bitmap, targetWidth, targetHeight, true);
+      if (scaled != bitmap) {
         bitmap.recycle();
-        return transformed;
       }
+      return scaled;
     }
     return bitmap;
   }
 }
-
@@ -1,71 +1,46 @@
 package com.hendrysetiadi.reactnative.sunmiprinter.utils;
 
-import android.annotation.SuppressLint;
 import android.graphics.Bitmap;
 
-import com.google.zxing.BarcodeFormat;
-import com.google.zxing.EncodeHintType;
 import com.google.zxing.WriterException;
 import com.google.zxing.common.BitMatrix;
-import com.google.zxing.qrcode.QRCodeWriter;
-
-import java.util.Hashtable;
 
 public class BytesUtil {
+	//光栅转换时每次读取的像素行数
+	private static final int RASTER_STRIP_ROWS = 32;
 
 	//字节流转16进制字符串
 	public static String getHexStringFromBytes(byte[] data) {
 		if (data == null || data.length <= 0) {
 			return null;
 		}
-		String hexString = "0123456789ABCDEF";
-		int size = data.length * 2;
-		StringBuilder sb = new StringBuilder(size);
-		for (int i = 0; i < data.length; i++) {
-			sb.append(hexString.charAt((data[i] & 0xF0) >> 4));
-			sb.append(hexString.charAt((data[i] & 0x0F) >> 0));
-		}
-		return sb.toString();
-	}
-
-	//单字符转字节
-	private static byte charToByte(char c) {
-		return (byte) "0123456789ABCDEF".indexOf(c);
+		return HexCodec.encode(data);
 	}
 
 	//16进制字符串转字节数组
-	@SuppressLint("DefaultLocale")
+	//Whitespace is ignored, returns null when the string holds an invalid character (see HexCodec)
 	public static byte[] getBytesFromHexString(String hexstring){
 		if(hexstring == null || hexstring.equals("")){
 			return null;
 		}
-		hexstring = hexstring.replace(" ", "");
-		hexstring = hexstring.toUpperCase();
-		int size = hexstring.length()/2;
-		char[] hexarray = hexstring.toCharArray();
-		byte[] rv = new byte[size];
-		for(int i=0; i<size; i++){
-			int pos = i * 2;
-			rv[i] = (byte) (charToByte(hexarray[pos]) << 4 | charToByte(hexarray[pos + 1]));
+		try {
+			return HexCodec.decode(hexstring);
+		} catch (IllegalArgumentException e) {
+			return null;
 		}
-		return rv;
 	}
 
 	//十进制字符串转字节数组
-	@SuppressLint("DefaultLocale")
+	//Two digits for each byte, returns null when the string holds an invalid character (see HexCodec)
 	public static byte[] getBytesFromDecString(String decstring){
 		if(decstring == null || decstring.equals("")){
 			return null;
 		}
-		decstring = decstring.replace(" ", "");
-		int size = decstring.length()/2;
-		char[] decarray = decstring.toCharArray();
-		byte[] rv = new byte[size];
-		for(int i=0; i<size; i++){
-			int pos = i * 2;
-			rv[i] = (byte) (charToByte(decarray[pos])*10 + charToByte(decarray[pos + 1]));
+		try {
+			return HexCodec.decodeDecimal(decstring);
+		} catch (IllegalArgumentException e) {
+			return null;
 		}
-		return rv;
 	}
 
 	//字节数组组合操作1
@@ -78,7 +53,6 @@ public class BytesUtil {
 
 	//字节数组组合操作2
 	public static byte[] byteMerger(byte[][] byteList) {
-
 		int length = 0;
 		for (int i = 0; i < byteList.length; i++) {
 			length += byteList[i].length;
@@ -87,14 +61,8 @@ public class BytesUtil {
 
 		int index = 0;
 		for (int i = 0; i < byteList.length; i++) {
-			byte[] nowByte = byteList[i];
-			for (int k = 0; k < byteList[i].length; k++) {
-				result[index] = nowByte[k];
-				index++;
-			}
-		}
-		for (int i = 0; i < index; i++) {
-			// CommonUtils.LogWuwei("", "result[" + i + "] is " + result[i]);
+			System.arraycopy(byteList[i], 0, result, index, byteList[i].length);
+			index += byteList[i].length;
 		}
 		return result;
 	}
@@ -147,17 +115,12 @@ public class BytesUtil {
 
 	/**
 	 * 生成多个二维码字节流
+	 * Same as QrRasterizer.rasterBitmap(), the matrices are cached
 	 */
 	public static byte[] getZXingQRCode(String qr1, String qr2, int size) {
 		try {
-			Hashtable<EncodeHintType, String> hints = new Hashtable<EncodeHintType, String>();
-			hints.put(EncodeHintType.CHARACTER_SET, "utf-8");
-			//图像数据转换，使用了矩阵转换
-			BitMatrix bitMatrix1 = new QRCodeWriter().encode(qr1, BarcodeFormat.QR_CODE,
-					size, size, hints);
-			BitMatrix bitMatrix2 = new QRCodeWriter().encode(qr2, BarcodeFormat.QR_CODE,
-					size, size, hints);
-			return getBytesFromBitMatrix(bitMatrix1, bitMatrix2, 40);
+			return getBytesFromBitMatrix(QrRasterizer.encode(qr1, size), QrRasterizer.encode(qr2, size),
+					QrRasterizer.DEFAULT_SPACE);
 		} catch (WriterException e) {
 			e.printStackTrace();
 		}
@@ -169,157 +132,70 @@ public class BytesUtil {
 	 */
 	public static byte[] getBytesFromBitMatrix(BitMatrix bits1, BitMatrix bits2, int space) {
 		if (bits1 == null || bits2 == null) return null;
+		return QrRasterizer.rasterBitmap(new BitMatrix[]{bits1, bits2}, space, 0);
+	}
 
-		int h1 = bits1.getHeight();
-		int w1 = bits1.getWidth();
-		int h2 = bits2.getHeight();
-		int w2 = bits2.getWidth();
-		int h = Math.max(h1, h2);
-		int w = (w1 + w2 + space + 7)/8;
-
-		byte[] rv = new byte[h * w + 4];
-
-		rv[0] = (byte) w;//xL
-		rv[1] = (byte) (w >> 8);//xH
-		rv[2] = (byte) h;
-		rv[3] = (byte) (h >> 8);
-
-		int k = 4;
-		byte b;
-		for (int i = 0; i < h; i++) {
-			for (int j = 0; j < w; j++) {
-				for (int n = 0; n < 8; n++) {
-					int pos = j * 8 + n;
-					if(pos < w1) {
-						if(i < h1) {
-							b = getBitMatrixColor(bits1, pos, i);
-						} else {
-							b = 0;
-						}
-						rv[k] += rv[k] + b;
-					} else if(pos < (w1 + space)) {
-						rv[k] += rv[k];
-					} else {
-						if(i < h2) {
-							b = getBitMatrixColor(bits2, pos - w1 - space, i);
-						} else {
-							b = 0;
-						}
-						rv[k] += rv[k] + b;
-					}
-				}
-				k++;
-			}
-		}
+	/**
+	 * 将bitmap图转换为头四位有宽高的光栅位图
+	 */
+	public static byte[] getBytesFromBitMap(Bitmap bitmap) {
+		int bw = RasterEncoder.bytesPerRow(bitmap.getWidth());
+		byte[] rv = new byte[bitmap.getHeight() * bw + 4];
+		writeRasterBitmap(bitmap, rv, 0);
 		return rv;
 	}
 
-	private static byte getBitMatrixColor(BitMatrix bits, int x, int y) {
-		int width = bits.getWidth();
-		int height = bits.getHeight();
-		if (x >= width || y >= height || x < 0 || y < 0) return 0;
-		if (bits.get(x, y)) {
-			return 1;
-		} else {
-			return 0;
-		}
+	/**
+	 * 将bitmap图转换为光栅位图, 直接写入目标数组
+	 * Writes the 4 bytes size header followed by the raster rows, the bitmap is read in strips of
+	 * RASTER_STRIP_ROWS rows so only one small pixel buffer is allocated
+	 * @param dst       Destination, needs height * ((width + 7) / 8) + 4 bytes from offset
+	 * @param offset    Offset of the header in dst
+	 * @return          Number of bytes written
+	 */
+	public static int writeRasterBitmap(Bitmap bitmap, byte[] dst, int offset) {
+		return writeRasterBitmap(bitmap, dst, offset, RasterEncoder.DITHER_NONE);
 	}
 
 	/**
-	 * 将bitmap图转换为头四位有宽高的光栅位图
+	 * 将bitmap图按指定的抖动模式转换为光栅位图, 直接写入目标数组
+	 * @param ditherMode    One of the RasterEncoder.DITHER_* modes
 	 */
-	public static byte[] getBytesFromBitMap(Bitmap bitmap) {
+	public static int writeRasterBitmap(Bitmap bitmap, byte[] dst, int offset, int ditherMode) {
 		int width = bitmap.getWidth();
 		int height = bitmap.getHeight();
-		int bw = (width - 1) / 8 + 1;
-
-		byte[] rv = new byte[height * bw + 4];
-		rv[0] = (byte) bw;//xL
-		rv[1] = (byte) (bw >> 8);//xH
-		rv[2] = (byte) height;
-		rv[3] = (byte) (height >> 8);
-
-		int[] pixels = new int[width * height];
-		bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
-
-		for (int i = 0; i < height; i++) {
-			for (int j = 0; j < width; j++) {
-				int clr = pixels[width * i + j];
-				int red = (clr & 0x00ff0000) >> 16;
-				int green = (clr & 0x0000ff00) >> 8;
-				int blue = clr & 0x000000ff;
-				byte gray = (RGB2Gray(red, green, blue));
-				rv[bw*i + j/8 + 4] = (byte) (rv[bw*i + j/8 + 4] | (gray << (7 - j % 8)));
+		int bw = RasterEncoder.bytesPerRow(width);
+
+		RasterEncoder.writeRasterHeader(dst, offset, bw, height);
+
+		int stripRows = Math.min(RASTER_STRIP_ROWS, height);
+		int[] pixels = new int[width * Math.max(stripRows, 1)];
+		RasterEncoder encoder = new RasterEncoder(width, ditherMode);
+		int rowOffset = offset + 4;
+		for (int y = 0; y < height; y += stripRows) {
+			int rows = Math.min(stripRows, height - y);
+			bitmap.getPixels(pixels, 0, width, 0, y, width, rows);
+			for (int i = 0; i < rows; i++) {
+				encoder.encodeRow(pixels, i * width, dst, rowOffset);
+				rowOffset += bw;
 			}
 		}
-
-		return rv;
+		return rowOffset - offset;
 	}
 
 	/**
 	 * 将bitmap转成按mode指定的N点行数据
+	 * Large images are converted in parallel bands, see ColumnEncoder
 	 */
 	public static byte[] getBytesFromBitMap(Bitmap bitmap, int mode) {
+		if (!ColumnEncoder.isSupported(mode)) {
+			return new byte[]{0x0A};
+		}
 		int width = bitmap.getWidth();
 		int height = bitmap.getHeight();
 		int[] pixels = new int[width*height];
-		if(mode == 0 || mode == 1){
-			byte[] res = new byte[width*height/8 + 5*height/8];
-			bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
-			for(int i = 0; i < height/8; i++){
-				res[0 + i*(width+5)] = 0x1b;
-				res[1 + i*(width+5)] = 0x2a;
-				res[2 + i*(width+5)] = (byte) mode;
-				res[3 + i*(width+5)] = (byte) (width%256);
-				res[4 + i*(width+5)] = (byte) (width/256);
-				for(int j = 0; j < width; j++){
-					byte gray = 0;
-					for(int m = 0; m < 8; m++){
-						int clr = pixels[j + width*(i*8+m)];
-						int red = (clr & 0x00ff0000) >> 16;
-						int green = (clr & 0x0000ff00) >> 8;
-						int blue = clr & 0x000000ff;
-						gray = (byte) ((RGB2Gray(red, green, blue)<<(7-m))|gray);
-					}
-					res[5 + j + i*(width+5)] = gray;
-				}
-			}
-			return res;
-		}else if(mode == 32 || mode == 33){
-			byte[] res = new byte[width*height/8 + 5*height/24];
-			bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
-			for(int i = 0; i < height/24; i++){
-				res[0 + i*(width*3+5)] = 0x1b;
-				res[1 + i*(width*3+5)] = 0x2a;
-				res[2 + i*(width*3+5)] = (byte) mode;
-				res[3 + i*(width*3+5)] = (byte) (width%256);
-				res[4 + i*(width*3+5)] = (byte) (width/256);
-				for(int j = 0; j < width; j++){
-					for(int n = 0; n < 3; n++){
-						byte gray = 0;
-						for(int m = 0; m < 8; m++){
-							int clr = pixels[j + width*(i*24 + m + n*8)];
-							int red = (clr & 0x00ff0000) >> 16;
-							int green = (clr & 0x0000ff00) >> 8;
-							int blue = clr & 0x000000ff;
-							gray = (byte) ((RGB2Gray(red, green, blue)<<(7-m))|gray);
-						}
-						res[5 + j*3 + i*(width*3+5) + n] = gray;
-					}
-				}
-			}
-			return res;
-		}else{
-			return new byte[]{0x0A};
-		}
-
-	}
-
-
-
-	private static byte RGB2Gray(int r, int g, int b) {
-		return (false ? ((int) (0.29900 * r + 0.58700 * g + 0.11400 * b) > 200)
-				: ((int) (0.29900 * r + 0.58700 * g + 0.11400 * b) < 200)) ? (byte) 1 : (byte) 0;
+		bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+		return ColumnEncoder.encode(pixels, width, height, mode);
 	}
 
 	/**
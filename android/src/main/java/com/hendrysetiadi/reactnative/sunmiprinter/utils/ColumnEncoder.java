@@ -0,0 +1,193 @@
+package com.hendrysetiadi.reactnative.sunmiprinter.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Converts ARGB pixels into column mode bit image bands (ESC * m nL nH d1...dk)
+ * Works on plain int[] pixels so it does not depend on android.graphics
+ *
+ * The last band is padded with white rows when the height is not a multiple of the band height.
+ * Every band only reads its own pixel rows and writes its own region of the output, so images above
+ * PARALLEL_MIN_PIXELS are converted on a small shared worker pool with the same result as the sequential conversion
+ */
+public class ColumnEncoder {
+  /**
+   * Smaller images are always converted on the calling thread
+   */
+  public static final int PARALLEL_MIN_PIXELS = 384 * 256;
+
+  private static final int MAX_THREADS = 4;
+
+  private static ExecutorService pool;
+
+  /**
+   * @param mode    0 / 1 = 8-dot single / double density, 32 / 33 = 24-dot single / double density
+   */
+  public static boolean isSupported(int mode) {
+    return mode == 0 || mode == 1 || mode == 32 || mode == 33;
+  }
+
+  /**
+   * Number of pixel rows per band
+   */
+  public static int bandHeight(int mode) {
+    return mode == 32 || mode == 33 ? 24 : 8;
+  }
+
+  public static int bandCount(int height, int mode) {
+    return (height + bandHeight(mode) - 1) / bandHeight(mode);
+  }
+
+  /**
+   * Size of the converted image, every band is the 5 bytes command followed by width * bandHeight / 8 bytes
+   */
+  public static int outputSize(int width, int height, int mode) {
+    return bandCount(height, mode) * (width * bandHeight(mode) / 8 + 5);
+  }
+
+  /**
+   * Convert the image, in parallel when it has at least PARALLEL_MIN_PIXELS pixels and more than one band
+   * @param pixels    ARGB pixels, width * height
+   * @param mode      Column mode (see isSupported)
+   */
+  public static byte[] encode(int[] pixels, int width, int height, int mode) {
+    return encode(pixels, width, height, mode, width * height >= PARALLEL_MIN_PIXELS);
+  }
+
+  /**
+   * @param parallel    Split the bands over the worker pool
+   */
+  public static byte[] encode(int[] pixels, int width, int height, int mode, boolean parallel) {
+    if (!isSupported(mode)) {
+      return new byte[]{0x0A};
+    }
+    byte[] result = new byte[outputSize(width, height, mode)];
+    encode(pixels, width, height, mode, parallel, result, 0);
+    return result;
+  }
+
+  /**
+   * Convert the image into an existing array, in parallel when it has at least PARALLEL_MIN_PIXELS pixels
+   * @param dst       Destination, needs outputSize() bytes from offset
+   * @param offset    Offset of the first band in dst
+   */
+  public static void encode(int[] pixels, int width, int height, int mode, byte[] dst, int offset) {
+    encode(pixels, width, height, mode, width * height >= PARALLEL_MIN_PIXELS, dst, offset);
+  }
+
+  /**
+   * @param parallel    Split the bands over the worker pool
+   */
+  public static void encode(int[] pixels, int width, int height, int mode, boolean parallel, byte[] dst, int offset) {
+    if (!isSupported(mode)) {
+      throw new IllegalArgumentException("Unknown column mode " + mode);
+    }
+    int bands = bandCount(height, mode);
+    int threads = parallel ? Math.min(threadCount(), bands) : 1;
+    if (threads <= 1) {
+      encodeBands(pixels, width, height, mode, 0, bands, dst, offset);
+    } else {
+      encodeParallel(pixels, width, height, mode, bands, threads, dst, offset);
+    }
+  }
+
+  /**
+   * Convert the bands [fromBand, toBand) into their region of dst
+   */
+  public static void encodeBands(int[] pixels, int width, int height, int mode, int fromBand, int toBand,
+                                 byte[] dst, int offset) {
+    int bandHeight = bandHeight(mode);
+    int slices = bandHeight / 8;
+    int bandSize = width * slices + 5;
+    // 0 / 1 per pixel for the 8 rows of one slice, thresholded row by row in memory order
+    byte[] bits = new byte[width * 8];
+    for (int i = fromBand; i < toBand; i++) {
+      int d = offset + i * bandSize;
+      dst[d] = 0x1b;
+      dst[d + 1] = 0x2a;
+      dst[d + 2] = (byte) mode;
+      dst[d + 3] = (byte) (width % 256);
+      dst[d + 4] = (byte) (width / 256);
+      d += 5;
+
+      for (int n = 0; n < slices; n++) {
+        int y = i * bandHeight + n * 8;
+        for (int m = 0; m < 8; m++, y++) {
+          int b = m * width;
+          if (y < height) {
+            for (int x = 0, p = y * width; x < width; x++, p++) {
+              bits[b + x] = RasterEncoder.isBlack(pixels[p]) ? (byte) 1 : 0;
+            }
+          } else {
+            // padding rows of the last band
+            for (int x = 0; x < width; x++) {
+              bits[b + x] = 0;
+            }
+          }
+        }
+
+        // column j of the slice goes to byte j * slices + n of the band
+        for (int j = 0, c = d + n; j < width; j++, c += slices) {
+          dst[c] = (byte) (bits[j] << 7 | bits[width + j] << 6 | bits[2 * width + j] << 5
+            | bits[3 * width + j] << 4 | bits[4 * width + j] << 3 | bits[5 * width + j] << 2
+            | bits[6 * width + j] << 1 | bits[7 * width + j]);
+        }
+      }
+    }
+  }
+
+  private static void encodeParallel(final int[] pixels, final int width, final int height, final int mode,
+                                     int bands, int threads, final byte[] dst, final int offset) {
+    List<Callable<Void>> tasks = new ArrayList<>(threads);
+    for (int t = 0; t < threads; t++) {
+      final int from = bands * t / threads;
+      final int to = bands * (t + 1) / threads;
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() {
+          encodeBands(pixels, width, height, mode, from, to, dst, offset);
+          return null;
+        }
+      });
+    }
+
+    try {
+      for (Future<Void> future : getPool().invokeAll(tasks)) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Bitmap conversion interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Bitmap conversion failed", e.getCause());
+    }
+  }
+
+  private static int threadCount() {
+    return Math.min(Runtime.getRuntime().availableProcessors(), MAX_THREADS);
+  }
+
+  private static synchronized ExecutorService getPool() {
+    if (pool == null) {
+      pool = Executors.newFixedThreadPool(threadCount(), new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "SunmiPrinterConvert-" + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    return pool;
+  }
+}
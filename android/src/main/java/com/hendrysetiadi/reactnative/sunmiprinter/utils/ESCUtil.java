@@ -2,7 +2,7 @@ package com.hendrysetiadi.reactnative.sunmiprinter.utils;
 
 import android.graphics.Bitmap;
 
-import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
 
 //常用指令封装
 public class ESCUtil {
@@ -19,12 +19,14 @@ public class ESCUtil {
   public static final byte FF =  0x0C;// Carriage control (print and return to the standard mode (in page mode))
   public static final byte CAN = 0x18;// Canceled (cancel print data in page mode)
 
+  // QR code symbol storage holds at most 7092 bytes including the 3 bytes function header
+  static final int QR_CODE_MAX_DATA = 7089;
+
+  private static final String CHARSET = "GB18030";
+
   //初始化打印机
   public static byte[] init_printer() {
-    byte[] result = new byte[2];
-    result[0] = ESC;
-    result[1] = 0x40;
-    return result;
+    return EscCommands.INIT.clone();
   }
 
   //打印浓度指令
@@ -53,16 +55,21 @@ public class ESCUtil {
    *                3 -- 纠错级别H (30%)
    */
   public static byte[] getPrintQRCode(String code, int modulesize, int errorlevel){
-    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-    try{
-      buffer.write(setQRCodeSize(modulesize));
-      buffer.write(setQRCodeErrorLevel(errorlevel));
-      buffer.write(getQCodeBytes(code));
-      buffer.write(getBytesForPrintQRCode());
-    }catch(Exception e){
-      e.printStackTrace();
-    }
-    return buffer.toByteArray();
+    byte[] data = encode(code);
+    int length = Math.min(data.length, QR_CODE_MAX_DATA);
+    byte[] size = EscCommands.qrCodeSize(modulesize);
+    byte[] level = EscCommands.qrCodeErrorLevel(errorlevel);
+
+    // size + error level + store data + print, built in one array from the cached segments
+    byte[] result = new byte[size.length + level.length + 8 + length + EscCommands.QR_CODE_PRINT.length];
+    int offset = 0;
+    System.arraycopy(size, 0, result, offset, size.length);
+    offset += size.length;
+    System.arraycopy(level, 0, result, offset, level.length);
+    offset += level.length;
+    offset = writeQRCodeStore(data, length, result, offset);
+    System.arraycopy(EscCommands.QR_CODE_PRINT, 0, result, offset, EscCommands.QR_CODE_PRINT.length);
+    return result;
   }
 
   /**
@@ -70,14 +77,17 @@ public class ESCUtil {
    * 将多个二维码转换为光栅位图打印
    */
   public static byte[] getPrintDoubleQRCode(String qr1, String qr2, int size){
-    byte[] bytes1  = new byte[4];
-    bytes1[0] = GS;
-    bytes1[1] = 0x76;
-    bytes1[2] = 0x30;
-    bytes1[3] = 0x00;
+    return QrRasterizer.rasterCommand(new String[]{qr1, qr2}, size, QrRasterizer.DEFAULT_SPACE);
+  }
 
-    byte[] bytes2 = BytesUtil.getZXingQRCode(qr1, qr2, size);
-    return BytesUtil.byteMerger(bytes1, bytes2);
+  /**
+   * 使用光栅位图打印多个二维码
+   * @param codes     QR Code data of each code, printed side by side
+   * @param size      Width and height of each code, in dots
+   * @param space     Gap between two codes, in dots
+   */
+  public static byte[] getPrintMultiQRCode(String[] codes, int size, int space){
+    return QrRasterizer.rasterCommand(codes, size, space);
   }
 
   /**
@@ -100,64 +110,73 @@ public class ESCUtil {
       height = 162;
     }
 
-    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-    try{
-      buffer.write(new byte[]{0x1D,0x66,0x01,0x1D,0x48,(byte)textposition,
-        0x1D,0x77,(byte)width,0x1D,0x68,(byte)height,0x0A});
-
-      byte[] barcode;
-      if(symbology == 10){
-        barcode = BytesUtil.getBytesFromDecString(data);
-      }else{
-        barcode = data.getBytes("GB18030");
+    byte[] setup = EscCommands.barcodeSetup(height, width, textposition);
+    byte[] barcode;
+    if(symbology == 10){
+      barcode = BytesUtil.getBytesFromDecString(data);
+      if(barcode == null){
+        return new byte[]{LF};
       }
+    }else{
+      barcode = encode(data);
+    }
 
-
-      if(symbology > 7){
-        buffer.write(new byte[]{0x1D,0x6B,0x49,(byte)(barcode.length+2),0x7B, (byte) (0x41+symbology-8)});
-      }else{
-        buffer.write(new byte[]{0x1D,0x6B,(byte)(symbology + 0x41),(byte)barcode.length});
-      }
-      buffer.write(barcode);
-    }catch(Exception e){
-      e.printStackTrace();
+    int headerLength = symbology > 7 ? 6 : 4;
+    byte[] result = new byte[setup.length + headerLength + barcode.length];
+    System.arraycopy(setup, 0, result, 0, setup.length);
+    int offset = setup.length;
+    if(symbology > 7){
+      result[offset] = 0x1D;
+      result[offset + 1] = 0x6B;
+      result[offset + 2] = 0x49;
+      result[offset + 3] = (byte) (barcode.length + 2);
+      result[offset + 4] = 0x7B;
+      result[offset + 5] = (byte) (0x41 + symbology - 8);
+    }else{
+      result[offset] = 0x1D;
+      result[offset + 1] = 0x6B;
+      result[offset + 2] = (byte) (symbology + 0x41);
+      result[offset + 3] = (byte) barcode.length;
     }
-    return buffer.toByteArray();
+    System.arraycopy(barcode, 0, result, offset + headerLength, barcode.length);
+    return result;
   }
 
   //光栅位图打印
   public static byte[] printBitmap(Bitmap bitmap){
-    byte[] bytes1  = new byte[4];
-    bytes1[0] = GS;
-    bytes1[1] = 0x76;
-    bytes1[2] = 0x30;
-    bytes1[3] = 0x00;
-
-    byte[] bytes2 = BytesUtil.getBytesFromBitMap(bitmap);
-    return BytesUtil.byteMerger(bytes1, bytes2);
+    return printBitmap(bitmap, 0);
   }
 
   //光栅位图打印 设置mode
   public static byte[] printBitmap(Bitmap bitmap, int mode){
-    byte[] bytes1  = new byte[4];
-    bytes1[0] = GS;
-    bytes1[1] = 0x76;
-    bytes1[2] = 0x30;
-    bytes1[3] = (byte) mode;
+    return printBitmap(bitmap, mode, RasterEncoder.DITHER_NONE);
+  }
 
-    byte[] bytes2 = BytesUtil.getBytesFromBitMap(bitmap);
-    return BytesUtil.byteMerger(bytes1, bytes2);
+  /**
+   * 光栅位图打印 设置mode与抖动模式
+   * @param ditherMode    One of the RasterEncoder.DITHER_* modes
+   */
+  public static byte[] printBitmap(Bitmap bitmap, int mode, int ditherMode){
+    int bw = RasterEncoder.bytesPerRow(bitmap.getWidth());
+    byte[] result = new byte[bitmap.getHeight() * bw + 8];
+    result[0] = GS;
+    result[1] = 0x76;
+    result[2] = 0x30;
+    result[3] = (byte) mode;
+
+    BytesUtil.writeRasterBitmap(bitmap, result, 4, ditherMode);
+    return result;
   }
 
   //光栅位图打印
   public static byte[] printBitmap(byte[] bytes){
-    byte[] bytes1  = new byte[4];
-    bytes1[0] = GS;
-    bytes1[1] = 0x76;
-    bytes1[2] = 0x30;
-    bytes1[3] = 0x00;
-
-    return BytesUtil.byteMerger(bytes1, bytes);
+    byte[] result = new byte[bytes.length + 4];
+    result[0] = GS;
+    result[1] = 0x76;
+    result[2] = 0x30;
+    result[3] = 0x00;
+    System.arraycopy(bytes, 0, result, 4, bytes.length);
+    return result;
   }
 
   /*
@@ -165,7 +184,27 @@ public class ESCUtil {
    *	需要设置1B 33 00将行间距设为0
    */
   public static byte[] selectBitmap(Bitmap bitmap, int mode){
-    return BytesUtil.byteMerger(BytesUtil.byteMerger(new byte[]{0x1B, 0x33, 0x00}, BytesUtil.getBytesFromBitMap(bitmap, mode)), new byte[]{0x0A, 0x1B, 0x32});
+    int width = bitmap.getWidth();
+    int height = bitmap.getHeight();
+    boolean supported = ColumnEncoder.isSupported(mode);
+    int size = supported ? ColumnEncoder.outputSize(width, height, mode) : 1;
+
+    // 1B 33 00 + bands + 0A 1B 32, written in place
+    byte[] result = new byte[size + 6];
+    result[0] = ESC;
+    result[1] = 0x33;
+    result[2] = 0x00;
+    if (supported) {
+      int[] pixels = new int[width * height];
+      bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+      ColumnEncoder.encode(pixels, width, height, mode, result, 3);
+    } else {
+      result[3] = LF;
+    }
+    result[size + 3] = LF;
+    result[size + 4] = ESC;
+    result[size + 5] = 0x32;
+    return result;
   }
 
   /**
@@ -183,40 +222,42 @@ public class ESCUtil {
   // ------------------------style set-----------------------------
   //设置默认行间距
   public static byte[] setDefaultLineSpace(){
-    return new byte[]{0x1B, 0x32};
+    return EscCommands.DEFAULT_LINE_SPACE.clone();
   }
 
   //设置行间距
   public static byte[] setLineSpace(int height){
-    return new byte[]{0x1B, 0x33, (byte) height};
+    return EscCommands.lineSpace(height).clone();
   }
 
   // ------------------------underline-----------------------------
   //设置下划线1点
   public static byte[] underlineWithOneDotWidthOn() {
-    byte[] result = new byte[3];
-    result[0] = ESC;
-    result[1] = 45;
-    result[2] = 1;
-    return result;
+    return EscCommands.UNDERLINE_ONE_DOT.clone();
   }
 
   //设置下划线2点
   public static byte[] underlineWithTwoDotWidthOn() {
-    byte[] result = new byte[3];
-    result[0] = ESC;
-    result[1] = 45;
-    result[2] = 2;
-    return result;
+    return EscCommands.UNDERLINE_TWO_DOTS.clone();
   }
 
   //取消下划线
   public static byte[] underlineOff() {
-    byte[] result = new byte[3];
-    result[0] = ESC;
-    result[1] = 45;
-    result[2] = 0;
-    return result;
+    return EscCommands.UNDERLINE_OFF.clone();
+  }
+
+  /**
+   * Bold / underline styles sent before a styled text, empty when neither is set
+   */
+  public static byte[] style(boolean bold, boolean underline) {
+    return EscCommands.style(bold, underline).clone();
+  }
+
+  /**
+   * Bold off and underline off in one command, sent after a styled text
+   */
+  public static byte[] styleReset() {
+    return EscCommands.STYLE_RESET.clone();
   }
 
   // ------------------------bold-----------------------------
@@ -224,22 +265,14 @@ public class ESCUtil {
    * 字体加粗
    */
   public static byte[] boldOn() {
-    byte[] result = new byte[3];
-    result[0] = ESC;
-    result[1] = 69;
-    result[2] = 0xF;
-    return result;
+    return EscCommands.BOLD_ON.clone();
   }
 
   /**
    * 取消字体加粗
    */
   public static byte[] boldOff() {
-    byte[] result = new byte[3];
-    result[0] = ESC;
-    result[1] = 69;
-    result[2] = 0;
-    return result;
+    return EscCommands.BOLD_OFF.clone();
   }
 
   // ------------------------character-----------------------------
@@ -247,20 +280,14 @@ public class ESCUtil {
    *单字节模式开启
    */
   public static byte[] singleByte(){
-    byte[] result = new byte[2];
-    result[0] = FS;
-    result[1] = 0x2E;
-    return result;
+    return EscCommands.SINGLE_BYTE_ON.clone();
   }
 
   /*
    *单字节模式关闭
    */
   public static byte[] singleByteOff(){
-    byte[] result = new byte[2];
-    result[0] = FS;
-    result[1] = 0x26;
-    return result;
+    return EscCommands.SINGLE_BYTE_OFF.clone();
   }
 
   /**
@@ -291,39 +318,26 @@ public class ESCUtil {
    * 居左
    */
   public static byte[] alignLeft() {
-    byte[] result = new byte[3];
-    result[0] = ESC;
-    result[1] = 97;
-    result[2] = 0;
-    return result;
+    return EscCommands.ALIGN_LEFT.clone();
   }
 
   /**
    * 居中对齐
    */
   public static byte[] alignCenter() {
-    byte[] result = new byte[3];
-    result[0] = ESC;
-    result[1] = 97;
-    result[2] = 1;
-    return result;
+    return EscCommands.ALIGN_CENTER.clone();
   }
 
   /**
    * 居右
    */
   public static byte[] alignRight() {
-    byte[] result = new byte[3];
-    result[0] = ESC;
-    result[1] = 97;
-    result[2] = 2;
-    return result;
+    return EscCommands.ALIGN_RIGHT.clone();
   }
 
   //切刀
   public static byte[] cutter() {
-    byte[] data = new byte[]{0x1d, 0x56, 0x01};
-    return data;
+    return EscCommands.CUT.clone();
   }
 
   /**
@@ -332,7 +346,7 @@ public class ESCUtil {
    * 	For compatibility reasons, only the handheld can support the SDK, other devices must use the command method
    */
   public static byte[] labellocate() {
-    return new byte[]{0x1C, 0x28, 0x4C, 0x02, 0x00, 0x43, 0x31};
+    return EscCommands.LABEL_LOCATE.clone();
   }
 
   /**
@@ -341,7 +355,7 @@ public class ESCUtil {
    * For compatibility reasons, only the handheld can support the SDK, other devices must use the command method
    */
   public static byte[] labelout(){
-    return new byte[]{0x1C, 0x28, 0x4C, 0x02, 0x00, 0x42, 0x31};
+    return EscCommands.LABEL_OUT.clone();
   }
 
 
@@ -349,70 +363,30 @@ public class ESCUtil {
   ////////////////////////////////////////////////////////////////////////////////////
   //////////////////////////          private                /////////////////////////
   ////////////////////////////////////////////////////////////////////////////////////
-  private static byte[] setQRCodeSize(int modulesize){
-    //二维码块大小设置指令
-    byte[] dtmp = new byte[8];
-    dtmp[0] = GS;
-    dtmp[1] = 0x28;
-    dtmp[2] = 0x6B;
-    dtmp[3] = 0x03;
-    dtmp[4] = 0x00;
-    dtmp[5] = 0x31;
-    dtmp[6] = 0x43;
-    dtmp[7] = (byte)modulesize;
-    return dtmp;
-  }
-
-  private static byte[] setQRCodeErrorLevel(int errorlevel){
-    //二维码纠错等级设置指令
-    byte[] dtmp = new byte[8];
-    dtmp[0] = GS;
-    dtmp[1] = 0x28;
-    dtmp[2] = 0x6B;
-    dtmp[3] = 0x03;
-    dtmp[4] = 0x00;
-    dtmp[5] = 0x31;
-    dtmp[6] = 0x45;
-    dtmp[7] = (byte)(48+errorlevel);
-    return dtmp;
-  }
-
-  //打印已存入数据的二维码
-  private static byte[] getBytesForPrintQRCode(){
-    byte[] dtmp = new byte[9];
-    dtmp[0] = 0x1D;
-    dtmp[1] = 0x28;
-    dtmp[2] = 0x6B;
-    dtmp[3] = 0x03;
-    dtmp[4] = 0x00;
-    dtmp[5] = 0x31;
-    dtmp[6] = 0x51;
-    dtmp[7] = 0x30;
-    dtmp[8] = 0x0A;
-    return dtmp;
-  }
-
-  private static byte[] getQCodeBytes(String code) {
-    //二维码存入指令
-    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+  /**
+   * Write the QR code store command (GS ( k pL pH 31 50 30 d1...dk)
+   * @param length    Number of data bytes to store, at most QR_CODE_MAX_DATA
+   * @return          Offset after the command
+   */
+  static int writeQRCodeStore(byte[] data, int length, byte[] dst, int offset) {
+    int len = length + 3;
+    dst[offset] = GS;
+    dst[offset + 1] = 0x28;
+    dst[offset + 2] = 0x6B;
+    dst[offset + 3] = (byte) len;
+    dst[offset + 4] = (byte) (len >> 8);
+    dst[offset + 5] = 0x31;
+    dst[offset + 6] = 0x50;
+    dst[offset + 7] = 0x30;
+    System.arraycopy(data, 0, dst, offset + 8, length);
+    return offset + 8 + length;
+  }
+
+  private static byte[] encode(String text) {
     try {
-      byte[] d = code.getBytes("GB18030");
-      int len = d.length + 3;
-      if (len > 7092) len = 7092;
-      buffer.write((byte) 0x1D);
-      buffer.write((byte) 0x28);
-      buffer.write((byte) 0x6B);
-      buffer.write((byte) len);
-      buffer.write((byte) (len >> 8));
-      buffer.write((byte) 0x31);
-      buffer.write((byte) 0x50);
-      buffer.write((byte) 0x30);
-      for (int i = 0; i < d.length && i < len; i++) {
-        buffer.write(d[i]);
-      }
-    } catch (Exception e) {
-      e.printStackTrace();
+      return text.getBytes(CHARSET);
+    } catch (UnsupportedEncodingException e) {
+      return text.getBytes();
     }
-    return buffer.toByteArray();
   }
 }
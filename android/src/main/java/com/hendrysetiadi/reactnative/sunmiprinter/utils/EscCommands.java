@@ -0,0 +1,154 @@
+package com.hendrysetiadi.reactnative.sunmiprinter.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precompiled ESC/POS command segments shared by every print call
+ * The arrays are shared and must never be modified, so they stay inside this package: ESCUtil returns copies
+ * of them and EscPosWriter appends them to its buffer.
+ * Parameterized commands (alignment, line space, character size, QR code and barcode settings) are built once
+ * per parameter value and kept in a template cache
+ */
+final class EscCommands {
+  private static final byte ESC = ESCUtil.ESC;
+  private static final byte GS = ESCUtil.GS;
+  private static final byte FS = ESCUtil.FS;
+
+  static final byte[] EMPTY = new byte[0];
+
+  static final byte[] INIT = {ESC, 0x40};
+  static final byte[] CUT = {GS, 0x56, 0x01};
+  static final byte[] OPEN_CASH_BOX = {ESCUtil.DLE, 0x14, 0x00, 0x00, 0x00};
+
+  static final byte[] BOLD_ON = {ESC, 69, 0xF};
+  static final byte[] BOLD_OFF = {ESC, 69, 0};
+  static final byte[] UNDERLINE_ONE_DOT = {ESC, 45, 1};
+  static final byte[] UNDERLINE_TWO_DOTS = {ESC, 45, 2};
+  static final byte[] UNDERLINE_OFF = {ESC, 45, 0};
+
+  static final byte[] BOLD_UNDERLINE_ON = {ESC, 69, 0xF, ESC, 45, 1};
+  // boldOff() + underlineOff(), sent after every styled text
+  static final byte[] STYLE_RESET = {ESC, 69, 0, ESC, 45, 0};
+
+  static final byte[] ALIGN_LEFT = {ESC, 97, 0};
+  static final byte[] ALIGN_CENTER = {ESC, 97, 1};
+  static final byte[] ALIGN_RIGHT = {ESC, 97, 2};
+
+  static final byte[] DEFAULT_LINE_SPACE = {ESC, 0x32};
+
+  static final byte[] SINGLE_BYTE_ON = {FS, 0x2E};
+  static final byte[] SINGLE_BYTE_OFF = {FS, 0x26};
+
+  static final byte[] LABEL_LOCATE = {0x1C, 0x28, 0x4C, 0x02, 0x00, 0x43, 0x31};
+  static final byte[] LABEL_OUT = {0x1C, 0x28, 0x4C, 0x02, 0x00, 0x42, 0x31};
+
+  // print the QR code stored in the symbol storage area, followed by a line feed
+  static final byte[] QR_CODE_PRINT = {GS, 0x28, 0x6B, 0x03, 0x00, 0x31, 0x51, 0x30, 0x0A};
+
+  // template cache keys: command id in the high byte, parameters below
+  private static final int LINE_SPACE = 1;
+  private static final int CHARACTER_SIZE = 2;
+  private static final int QR_CODE_SIZE = 3;
+  private static final int QR_CODE_ERROR_LEVEL = 4;
+  private static final int BARCODE_SETUP = 5;
+
+  private static final ConcurrentHashMap<Integer, byte[]> templates = new ConcurrentHashMap<>();
+
+  private EscCommands() {
+  }
+
+  /**
+   * @param alignment     0 = Left, 1 = Center, 2 = Right
+   */
+  static byte[] align(int alignment) {
+    switch (alignment) {
+      case 1:
+        return ALIGN_CENTER;
+      case 2:
+        return ALIGN_RIGHT;
+      default:
+        return ALIGN_LEFT;
+    }
+  }
+
+  /**
+   * Bold / underline styles sent before a styled text, EMPTY when neither is set
+   */
+  static byte[] style(boolean bold, boolean underline) {
+    if (bold && underline) {
+      return BOLD_UNDERLINE_ON;
+    }
+    if (bold) {
+      return BOLD_ON;
+    }
+    return underline ? UNDERLINE_ONE_DOT : EMPTY;
+  }
+
+  static byte[] lineSpace(int height) {
+    int key = LINE_SPACE << 24 | (height & 0xFF);
+    byte[] command = templates.get(key);
+    if (command == null) {
+      command = cache(key, new byte[]{ESC, 0x33, (byte) height});
+    }
+    return command;
+  }
+
+  /**
+   * Character size multiplier (GS ! n)
+   * @param width     1 - 8
+   * @param height    1 - 8
+   */
+  static byte[] characterSize(int width, int height) {
+    int w = Math.min(Math.max(width, 1), 8) - 1;
+    int h = Math.min(Math.max(height, 1), 8) - 1;
+    int key = CHARACTER_SIZE << 24 | (w << 4) | h;
+    byte[] command = templates.get(key);
+    if (command == null) {
+      command = cache(key, new byte[]{GS, 0x21, (byte) ((w << 4) | h)});
+    }
+    return command;
+  }
+
+  /**
+   * QR code module size (GS ( k 31 43 n)
+   */
+  static byte[] qrCodeSize(int moduleSize) {
+    int key = QR_CODE_SIZE << 24 | (moduleSize & 0xFF);
+    byte[] command = templates.get(key);
+    if (command == null) {
+      command = cache(key, new byte[]{GS, 0x28, 0x6B, 0x03, 0x00, 0x31, 0x43, (byte) moduleSize});
+    }
+    return command;
+  }
+
+  /**
+   * QR code error correction level (GS ( k 31 45 n), 0 = L, 1 = M, 2 = Q, 3 = H
+   */
+  static byte[] qrCodeErrorLevel(int errorLevel) {
+    int key = QR_CODE_ERROR_LEVEL << 24 | ((48 + errorLevel) & 0xFF);
+    byte[] command = templates.get(key);
+    if (command == null) {
+      command = cache(key, new byte[]{GS, 0x28, 0x6B, 0x03, 0x00, 0x31, 0x45, (byte) (48 + errorLevel)});
+    }
+    return command;
+  }
+
+  /**
+   * Barcode settings: HRI font, HRI position, module width and height, followed by a line feed
+   * The parameters must already be in range (see ESCUtil.getPrintBarCode)
+   */
+  static byte[] barcodeSetup(int height, int width, int textPosition) {
+    int key = BARCODE_SETUP << 24 | (textPosition & 0xFF) << 16 | (width & 0xFF) << 8 | (height & 0xFF);
+    byte[] command = templates.get(key);
+    if (command == null) {
+      command = cache(key, new byte[]{0x1D, 0x66, 0x01, 0x1D, 0x48, (byte) textPosition,
+        0x1D, 0x77, (byte) width, 0x1D, 0x68, (byte) height, 0x0A});
+    }
+    return command;
+  }
+
+  private static byte[] cache(int key, byte[] command) {
+    byte[] previous = templates.putIfAbsent(key, command);
+    return previous != null ? previous : command;
+  }
+}
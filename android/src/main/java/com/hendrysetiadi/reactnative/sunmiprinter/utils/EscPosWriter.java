@@ -0,0 +1,291 @@
+package com.hendrysetiadi.reactnative.sunmiprinter.utils;
+
+import android.graphics.Bitmap;
+
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Streaming ESC/POS document builder
+ * All commands are appended into one growable buffer, the final array can be sent with a single sendRAWData()
+ * Writers taken with obtain() are given back with recycle(), so their grown buffers are reused by the next print job
+ */
+public class EscPosWriter {
+  private static final int DEFAULT_CAPACITY = 1024;
+  private static final String CHARSET = "GB18030";
+
+  private static final int POOL_SIZE = 4;
+  // Larger buffers (e.g. big images) are not kept, so an occasional big job does not pin its memory
+  private static final int POOL_MAX_CAPACITY = 256 * 1024;
+  private static final EscPosWriter[] pool = new EscPosWriter[POOL_SIZE];
+  private static int poolCount;
+
+  private byte[] buf;
+  private int count;
+
+  public EscPosWriter() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public EscPosWriter(int initialCapacity) {
+    buf = new byte[Math.max(initialCapacity, 16)];
+  }
+
+  // ------------------------pool-----------------------------
+
+  /**
+   * Take an empty writer from the pool, or create one
+   */
+  public static EscPosWriter obtain() {
+    return obtain(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Take an empty writer from the pool, or create one
+   * @param minCapacity     Expected size of the document
+   */
+  public static EscPosWriter obtain(int minCapacity) {
+    EscPosWriter writer = null;
+    synchronized (pool) {
+      if (poolCount > 0) {
+        writer = pool[--poolCount];
+        pool[poolCount] = null;
+      }
+    }
+    if (writer == null) {
+      return new EscPosWriter(minCapacity);
+    }
+    writer.ensureCapacity(minCapacity);
+    return writer;
+  }
+
+  /**
+   * Give the writer back to the pool, it must not be used afterwards
+   */
+  public void recycle() {
+    count = 0;
+    if (buf.length > POOL_MAX_CAPACITY) {
+      return;
+    }
+    synchronized (pool) {
+      if (poolCount < POOL_SIZE) {
+        pool[poolCount++] = this;
+      }
+    }
+  }
+
+  // ------------------------buffer-----------------------------
+
+  public int size() {
+    return count;
+  }
+
+  public EscPosWriter reset() {
+    count = 0;
+    return this;
+  }
+
+  public byte[] toByteArray() {
+    byte[] result = new byte[count];
+    System.arraycopy(buf, 0, result, 0, count);
+    return result;
+  }
+
+  /**
+   * Reserve length bytes at the end of the buffer, to be filled in place through buffer()
+   * @return    Offset of the reserved region
+   */
+  public int reserve(int length) {
+    ensureCapacity(count + length);
+    int offset = count;
+    count += length;
+    return offset;
+  }
+
+  /**
+   * Backing array, only valid until the next write
+   */
+  public byte[] buffer() {
+    return buf;
+  }
+
+  public void ensureCapacity(int minCapacity) {
+    if (minCapacity > buf.length) {
+      int newCapacity = Math.max(buf.length << 1, minCapacity);
+      byte[] newBuf = new byte[newCapacity];
+      System.arraycopy(buf, 0, newBuf, 0, count);
+      buf = newBuf;
+    }
+  }
+
+  public EscPosWriter write(int b) {
+    ensureCapacity(count + 1);
+    buf[count++] = (byte) b;
+    return this;
+  }
+
+  public EscPosWriter write(int b1, int b2) {
+    ensureCapacity(count + 2);
+    buf[count++] = (byte) b1;
+    buf[count++] = (byte) b2;
+    return this;
+  }
+
+  public EscPosWriter write(int b1, int b2, int b3) {
+    ensureCapacity(count + 3);
+    buf[count++] = (byte) b1;
+    buf[count++] = (byte) b2;
+    buf[count++] = (byte) b3;
+    return this;
+  }
+
+  public EscPosWriter write(byte[] data) {
+    return write(data, 0, data.length);
+  }
+
+  public EscPosWriter write(byte[] data, int offset, int length) {
+    ensureCapacity(count + length);
+    System.arraycopy(data, offset, buf, count, length);
+    count += length;
+    return this;
+  }
+
+  // ------------------------printer-----------------------------
+
+  //初始化打印机
+  public EscPosWriter init() {
+    return write(ESCUtil.ESC, 0x40);
+  }
+
+  //切刀
+  public EscPosWriter cut() {
+    return write(ESCUtil.GS, 0x56, 0x01);
+  }
+
+  /**
+   * Open the cash drawer (sunmi DLE DC4 command)
+   */
+  public EscPosWriter openCashBox() {
+    return write(EscCommands.OPEN_CASH_BOX);
+  }
+
+  // ------------------------style set-----------------------------
+
+  public EscPosWriter bold(boolean on) {
+    return write(ESCUtil.ESC, 69, on ? 0xF : 0);
+  }
+
+  /**
+   * @param dots    Underline width: 0 = Off, 1 = One dot, 2 = Two dots
+   */
+  public EscPosWriter underline(int dots) {
+    return write(ESCUtil.ESC, 45, dots);
+  }
+
+  /**
+   * @param alignment     0 = Left, 1 = Center, 2 = Right
+   */
+  public EscPosWriter align(int alignment) {
+    return write(ESCUtil.ESC, 97, alignment);
+  }
+
+  /**
+   * Character size multiplier (GS ! n)
+   * @param width     1 - 8
+   * @param height    1 - 8
+   */
+  public EscPosWriter characterSize(int width, int height) {
+    return write(EscCommands.characterSize(width, height));
+  }
+
+  public EscPosWriter defaultLineSpace() {
+    return write(ESCUtil.ESC, 0x32);
+  }
+
+  public EscPosWriter lineSpace(int height) {
+    return write(ESCUtil.ESC, 0x33, height);
+  }
+
+  // ------------------------content-----------------------------
+
+  public EscPosWriter text(String content) {
+    if (content == null || content.isEmpty()) {
+      return this;
+    }
+    try {
+      return write(content.getBytes(CHARSET));
+    } catch (UnsupportedEncodingException e) {
+      return write(content.getBytes());
+    }
+  }
+
+  public EscPosWriter newLine() {
+    return write(ESCUtil.LF);
+  }
+
+  public EscPosWriter feed(int lines) {
+    ensureCapacity(count + lines);
+    for (int i = 0; i < lines; i++) {
+      buf[count++] = ESCUtil.LF;
+    }
+    return this;
+  }
+
+  /**
+   * Print one row of columns, each column is wrapped and aligned inside its share of the line
+   * Multi-byte GB18030 characters (CJK, symbols, emoji) count as two columns (see TextLayout)
+   * @param columns       Text for each Column
+   * @param widths        Width ratio for each Column
+   * @param alignments    Alignment for each Column (0 = Left, 1 = Center, 2 = Right)
+   * @param lineChars     Number of half-width characters per line
+   */
+  public EscPosWriter tableRow(String[] columns, int[] widths, int[] alignments, int lineChars) {
+    TextLayout.getDefault().writeRow(this, columns, widths, alignments, lineChars);
+    return this;
+  }
+
+  /**
+   * 打印一维条形码
+   * Same encoding as ESCUtil.getPrintBarCode()
+   */
+  public EscPosWriter barcode(String data, int symbology, int height, int width, int textposition) {
+    byte[] barcode = ESCUtil.getPrintBarCode(data, symbology, height, width, textposition);
+    return write(barcode);
+  }
+
+  /**
+   * 打印单个二维码 sunmi自定义指令
+   * @param modulesize:	二维码块大小(单位:点, 取值 1 至 16 )
+   * @param errorlevel:	二维码纠错等级(0 至 3)
+   */
+  public EscPosWriter qrCode(String code, int modulesize, int errorlevel) {
+    byte[] data;
+    try {
+      data = code.getBytes(CHARSET);
+    } catch (UnsupportedEncodingException e) {
+      data = code.getBytes();
+    }
+    int length = Math.min(data.length, ESCUtil.QR_CODE_MAX_DATA);
+
+    write(EscCommands.qrCodeSize(modulesize));
+    write(EscCommands.qrCodeErrorLevel(errorlevel));
+    ESCUtil.writeQRCodeStore(data, length, buf, reserve(length + 8));
+    return write(EscCommands.QR_CODE_PRINT);
+  }
+
+  //光栅位图打印
+  public EscPosWriter rasterImage(Bitmap bitmap) {
+    return rasterImage(bitmap, RasterEncoder.DITHER_NONE);
+  }
+
+  /**
+   * 光栅位图打印
+   * @param ditherMode    One of the RasterEncoder.DITHER_* modes
+   */
+  public EscPosWriter rasterImage(Bitmap bitmap, int ditherMode) {
+    write(ESCUtil.GS, 0x76, 0x30).write(0x00);
+    int length = bitmap.getHeight() * RasterEncoder.bytesPerRow(bitmap.getWidth()) + 4;
+    int offset = reserve(length);
+    BytesUtil.writeRasterBitmap(bitmap, buf, offset, ditherMode);
+    return this;
+  }
+}
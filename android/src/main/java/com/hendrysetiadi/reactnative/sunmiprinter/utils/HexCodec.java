@@ -0,0 +1,159 @@
+package com.hendrysetiadi.reactnative.sunmiprinter.utils;
+
+import java.util.Arrays;
+
+/**
+ * Table driven hex / decimal codec for raw command payloads
+ * Whitespace between digits is ignored, any other non digit character is rejected.
+ * Nothing is allocated beyond the output, and both directions can write into an existing buffer
+ */
+public class HexCodec {
+  private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+  // digit value of each ASCII character, -1 = invalid, -2 = whitespace
+  private static final byte[] HEX_VALUES = new byte[128];
+  private static final byte[] DEC_VALUES = new byte[128];
+
+  static {
+    Arrays.fill(HEX_VALUES, (byte) -1);
+    Arrays.fill(DEC_VALUES, (byte) -1);
+    for (int i = 0; i < 10; i++) {
+      HEX_VALUES['0' + i] = (byte) i;
+      DEC_VALUES['0' + i] = (byte) i;
+    }
+    for (int i = 0; i < 6; i++) {
+      HEX_VALUES['A' + i] = (byte) (10 + i);
+      HEX_VALUES['a' + i] = (byte) (10 + i);
+    }
+    for (char c : new char[]{' ', '\t', '\r', '\n'}) {
+      HEX_VALUES[c] = -2;
+      DEC_VALUES[c] = -2;
+    }
+  }
+
+  /**
+   * Number of bytes decoded from a hex string
+   * @throws IllegalArgumentException when the string holds an invalid character or an odd number of digits
+   */
+  public static int decodedLength(CharSequence hex) {
+    return decodedLength(hex, HEX_VALUES);
+  }
+
+  /**
+   * Decode a hex string, e.g. "1B 40 0A"
+   * @throws IllegalArgumentException when the string holds an invalid character or an odd number of digits
+   */
+  public static byte[] decode(CharSequence hex) {
+    byte[] rv = new byte[decodedLength(hex)];
+    decode(hex, rv, 0);
+    return rv;
+  }
+
+  /**
+   * Decode a hex string into an existing buffer
+   * @param dst       Output buffer, must have room for decodedLength() bytes
+   * @param offset    Position of the first byte in dst
+   * @return          Number of bytes written
+   */
+  public static int decode(CharSequence hex, byte[] dst, int offset) {
+    return decode(hex, HEX_VALUES, 16, dst, offset);
+  }
+
+  /**
+   * Decode a string of two digit decimal values, e.g. "01 23 99" (used by the CODE128 decimal barcode data)
+   * @throws IllegalArgumentException when the string holds an invalid character or an odd number of digits
+   */
+  public static byte[] decodeDecimal(CharSequence dec) {
+    byte[] rv = new byte[decodedLength(dec, DEC_VALUES)];
+    decode(dec, DEC_VALUES, 10, rv, 0);
+    return rv;
+  }
+
+  /**
+   * Encode bytes as an upper case hex string without separators
+   */
+  public static String encode(byte[] data) {
+    return encode(data, 0, data.length);
+  }
+
+  public static String encode(byte[] data, int offset, int length) {
+    char[] chars = new char[length * 2];
+    encode(data, offset, length, chars, 0);
+    return new String(chars);
+  }
+
+  /**
+   * Encode bytes as hex into an existing buffer
+   * @param dst         Output buffer, must have room for 2 * length chars
+   * @param dstOffset   Position of the first char in dst
+   * @return            Number of chars written
+   */
+  public static int encode(byte[] data, int offset, int length, char[] dst, int dstOffset) {
+    int k = dstOffset;
+    for (int i = offset, end = offset + length; i < end; i++) {
+      int b = data[i];
+      dst[k++] = HEX_DIGITS[(b >> 4) & 0x0F];
+      dst[k++] = HEX_DIGITS[b & 0x0F];
+    }
+    return k - dstOffset;
+  }
+
+  /**
+   * Encode bytes as hex at the end of a builder (e.g. a log line)
+   */
+  public static StringBuilder encode(byte[] data, int offset, int length, StringBuilder sb) {
+    sb.ensureCapacity(sb.length() + length * 2);
+    for (int i = offset, end = offset + length; i < end; i++) {
+      int b = data[i];
+      sb.append(HEX_DIGITS[(b >> 4) & 0x0F]).append(HEX_DIGITS[b & 0x0F]);
+    }
+    return sb;
+  }
+
+  private static int decodedLength(CharSequence s, byte[] values) {
+    int digits = 0;
+    for (int i = 0, n = s.length(); i < n; i++) {
+      int v = value(s, i, values);
+      if (v >= 0) {
+        digits++;
+      }
+    }
+    if ((digits & 1) != 0) {
+      throw new IllegalArgumentException("Odd number of digits (" + digits + ")");
+    }
+    return digits / 2;
+  }
+
+  private static int decode(CharSequence s, byte[] values, int radix, byte[] dst, int offset) {
+    int k = offset;
+    int high = -1;
+    for (int i = 0, n = s.length(); i < n; i++) {
+      int v = value(s, i, values);
+      if (v < 0) {
+        continue;
+      }
+      if (high < 0) {
+        high = v;
+      } else {
+        dst[k++] = (byte) (high * radix + v);
+        high = -1;
+      }
+    }
+    if (high >= 0) {
+      throw new IllegalArgumentException("Odd number of digits");
+    }
+    return k - offset;
+  }
+
+  /**
+   * @return    Digit value, or -2 for whitespace
+   */
+  private static int value(CharSequence s, int index, byte[] values) {
+    char c = s.charAt(index);
+    int v = c < 128 ? values[c] : -1;
+    if (v == -1) {
+      throw new IllegalArgumentException("Invalid character '" + c + "' at " + index);
+    }
+    return v;
+  }
+}
@@ -0,0 +1,784 @@
+package com.hendrysetiadi.reactnative.sunmiprinter.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Raw ESC/POS output to network printers (raw TCP, port 9100)
+ * One non-blocking connection is kept per printer and driven by a single selector thread. Queued jobs are
+ * written with gather writes straight from their buffers, and every printer has its own bounded queue: send()
+ * blocks while a printer already has maxPendingBytes waiting. sendAll() queues a job to every printer with room
+ * right away and only waits for the full ones, so a slow printer never holds up the others.
+ * Connections are watched for reading, so a printer closing or resetting an idle connection is noticed right away.
+ * When a connection is lost, the jobs not started yet are sent again once on a new connection; the later parts of a
+ * Group are never sent again, a printer gets all parts of a grouped job on one connection or none after the failure
+ */
+public class NetworkPrinterPool implements Closeable {
+  public static final int DEFAULT_PORT = 9100;
+
+  // Maximum number of buffers passed to one gather write
+  private static final int MAX_GATHER_BUFFERS = 64;
+  private static final long SELECT_TIMEOUT_MS = 1000;
+
+  private final int maxPendingBytes;
+  private final long connectTimeoutMs;
+  private final long idleTimeoutMs;
+
+  private final Selector selector;
+  private final Thread ioThread;
+  private final Map<InetSocketAddress, Connection> connections = new HashMap<>();
+  // Connections with new writes, picked up by the selector thread
+  private final ConcurrentLinkedQueue<Connection> pendingConnections = new ConcurrentLinkedQueue<>();
+  // Notified whenever a printer queue gets room, roomVersion tells waiters they missed nothing
+  private final Object room = new Object();
+  private long roomVersion;
+  // Status bytes sent back by the printers are read and dropped, only used on the selector thread
+  private final ByteBuffer readBuffer = ByteBuffer.allocate(512);
+
+  private volatile boolean closed;
+
+  /**
+   * @param maxPendingBytes     Bytes queued per printer before send() blocks
+   * @param connectTimeoutMs    Connect timeout, queued jobs fail when the printer can not be reached in time
+   * @param idleTimeoutMs       Idle connections are closed after this time, and opened again on the next send()
+   */
+  public NetworkPrinterPool(int maxPendingBytes, long connectTimeoutMs, long idleTimeoutMs) throws IOException {
+    this.maxPendingBytes = maxPendingBytes;
+    this.connectTimeoutMs = connectTimeoutMs;
+    this.idleTimeoutMs = idleTimeoutMs;
+    selector = Selector.open();
+    ioThread = new Thread(this::run, "SunmiPrinterNetwork");
+    ioThread.setDaemon(true);
+    ioThread.start();
+  }
+
+  /**
+   * Result of one job sent to one printer
+   */
+  public static final class Delivery {
+    private final InetSocketAddress address;
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private volatile IOException error;
+
+    Delivery(InetSocketAddress address) {
+      this.address = address;
+    }
+
+    public InetSocketAddress getAddress() {
+      return address;
+    }
+
+    public boolean isDone() {
+      return latch.getCount() == 0;
+    }
+
+    /**
+     * @return    true when the job is done and was not written completely
+     */
+    public boolean isFailed() {
+      return isDone() && error != null;
+    }
+
+    /**
+     * Block until every byte of the job is written to the socket
+     * @throws TimeoutException when the job is not written in time
+     * @throws IOException when the printer could not be reached or the connection failed
+     */
+    public void await(long timeoutMs) throws IOException, TimeoutException, InterruptedException {
+      if (!latch.await(timeoutMs, TimeUnit.MILLISECONDS)) {
+        throw new TimeoutException("Printer " + address + " did not accept the data within " + timeoutMs + " ms");
+      }
+      if (error != null) {
+        throw error;
+      }
+    }
+
+    void complete(IOException e) {
+      if (latch.getCount() > 0) {
+        error = e;
+        latch.countDown();
+      }
+    }
+  }
+
+  /**
+   * Parts of one job queued separately (e.g. by NetworkTransport), they split commands at arbitrary bytes
+   * Every printer gets the parts on one connection: a part that would start on another connection than the
+   * earlier parts, or follows a failed part, fails instead of printing the tail of a command
+   */
+  public static final class Group {
+    // printer -> generation of the connection the parts are written on, BROKEN once a part failed
+    private final ConcurrentHashMap<InetSocketAddress, Integer> generations = new ConcurrentHashMap<>();
+  }
+
+  // Connection generations start at 1
+  private static final int BROKEN = 0;
+
+  private static final class Job {
+    final ByteBuffer[] buffers;
+    final int length;
+    final Delivery delivery;
+    final Group group;
+    // already sent again after a lost connection, only used on the selector thread
+    boolean retried;
+
+    Job(ByteBuffer[] buffers, int length, Delivery delivery, Group group) {
+      this.buffers = buffers;
+      this.length = length;
+      this.delivery = delivery;
+      this.group = group;
+    }
+
+    /**
+     * @return    true when an earlier part of the group was written or failed, on this printer
+     */
+    boolean isContinuation() {
+      return group != null && group.generations.containsKey(delivery.getAddress());
+    }
+
+    /**
+     * @return    true when the job may be written on the connection of this generation
+     */
+    boolean accepts(int generation) {
+      Integer claimed = group == null ? null : group.generations.get(delivery.getAddress());
+      return claimed == null || claimed == generation;
+    }
+
+    /**
+     * The job started writing on the connection of this generation, the later parts must follow it there
+     */
+    void claim(int generation) {
+      if (group != null) {
+        group.generations.putIfAbsent(delivery.getAddress(), generation);
+      }
+    }
+
+    void complete(IOException e) {
+      if (e != null && group != null) {
+        group.generations.put(delivery.getAddress(), BROKEN);
+      }
+      delivery.complete(e);
+    }
+
+    boolean isStarted() {
+      int remaining = 0;
+      for (ByteBuffer buffer : buffers) {
+        remaining += buffer.remaining();
+      }
+      return remaining < length;
+    }
+
+    boolean isWritten() {
+      for (ByteBuffer buffer : buffers) {
+        if (buffer.hasRemaining()) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private static final class Connection {
+    final InetSocketAddress address;
+    // guarded by this
+    final ArrayDeque<Job> jobs = new ArrayDeque<>();
+    long pendingBytes;
+
+    // only used on the selector thread
+    SocketChannel channel;
+    SelectionKey key;
+    // incremented for every new channel
+    int generation;
+    long connectDeadline;
+    long lastActivity;
+
+    Connection(InetSocketAddress address) {
+      this.address = address;
+    }
+  }
+
+  /**
+   * Queue a job to one printer
+   * Blocks while the printer already has maxPendingBytes queued (a single larger job is accepted on an empty queue)
+   * @param buffers     Encoded job, written from position to limit; the buffers must not change until the delivery is done
+   * @param timeoutMs   Maximum time to wait for room in the printer queue
+   */
+  public Delivery send(InetSocketAddress address, ByteBuffer[] buffers, long timeoutMs)
+    throws IOException, TimeoutException, InterruptedException {
+    if (closed) {
+      throw new IOException("Network printer pool is closed");
+    }
+    int length = 0;
+    for (ByteBuffer buffer : buffers) {
+      length += buffer.remaining();
+    }
+
+    Connection connection = connection(address);
+    Job job = new Job(buffers, length, new Delivery(address), null);
+    long deadline = System.currentTimeMillis() + timeoutMs;
+    synchronized (connection) {
+      while (!hasRoom(connection, length)) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+          throw new TimeoutException("Printer " + address + " queue is full");
+        }
+        connection.wait(remaining);
+        if (closed) {
+          throw new IOException("Network printer pool is closed");
+        }
+      }
+      connection.jobs.add(job);
+      connection.pendingBytes += length;
+    }
+    dispatch(connection, job);
+    return job.delivery;
+  }
+
+  /**
+   * Queue a job to one printer
+   * @param data    Encoded job, must not change until the delivery is done
+   */
+  public Delivery send(InetSocketAddress address, byte[] data, long timeoutMs)
+    throws IOException, TimeoutException, InterruptedException {
+    return send(address, new ByteBuffer[]{ByteBuffer.wrap(data)}, timeoutMs);
+  }
+
+  /**
+   * Queue the same job to several printers, they are written concurrently
+   * Printers with room in their queue get the job right away, the full ones share one timeoutMs deadline;
+   * a printer still full at the deadline gets a failed delivery, the other printers are not affected
+   * Each printer reads the buffers through its own views, the buffers themselves are not consumed
+   */
+  public List<Delivery> sendAll(List<InetSocketAddress> addresses, ByteBuffer[] buffers, long timeoutMs)
+    throws IOException, InterruptedException {
+    return sendAll(addresses, buffers, timeoutMs, null);
+  }
+
+  /**
+   * Queue the same part of a grouped job to several printers, see sendAll(List, ByteBuffer[], long)
+   * @param group     Group of the job, its parts are queued in order
+   */
+  public List<Delivery> sendAll(List<InetSocketAddress> addresses, ByteBuffer[] buffers, long timeoutMs, Group group)
+    throws IOException, InterruptedException {
+    if (closed) {
+      throw new IOException("Network printer pool is closed");
+    }
+    int length = 0;
+    for (ByteBuffer buffer : buffers) {
+      length += buffer.remaining();
+    }
+
+    List<Delivery> deliveries = new ArrayList<>(addresses.size());
+    List<Connection> waitingConnections = new ArrayList<>();
+    List<Job> waitingJobs = new ArrayList<>();
+    for (InetSocketAddress address : addresses) {
+      ByteBuffer[] views = new ByteBuffer[buffers.length];
+      for (int i = 0; i < buffers.length; i++) {
+        views[i] = buffers[i].duplicate();
+      }
+      Job job = new Job(views, length, new Delivery(address), group);
+      deliveries.add(job.delivery);
+      waitingConnections.add(connection(address));
+      waitingJobs.add(job);
+    }
+
+    long deadline = System.currentTimeMillis() + timeoutMs;
+    while (true) {
+      long version;
+      synchronized (room) {
+        version = roomVersion;
+      }
+      for (int i = waitingJobs.size() - 1; i >= 0; i--) {
+        if (offer(waitingConnections.get(i), waitingJobs.get(i))) {
+          waitingConnections.remove(i);
+          waitingJobs.remove(i);
+        }
+      }
+      long remaining = deadline - System.currentTimeMillis();
+      if (waitingJobs.isEmpty() || remaining <= 0 || closed) {
+        break;
+      }
+      synchronized (room) {
+        if (roomVersion == version) {
+          room.wait(remaining);
+        }
+      }
+    }
+    for (Job job : waitingJobs) {
+      job.complete(closed
+        ? new IOException("Network printer pool is closed")
+        : new IOException("Printer " + job.delivery.getAddress() + " queue is full"));
+    }
+    return deliveries;
+  }
+
+  /**
+   * Wait for every delivery, with one deadline shared by all of them
+   * @throws IOException naming every printer that failed or did not accept the data in time
+   */
+  public static void awaitAll(List<Delivery> deliveries, long timeoutMs) throws IOException, InterruptedException {
+    long deadline = System.currentTimeMillis() + timeoutMs;
+    StringBuilder message = null;
+    IOException first = null;
+    for (Delivery delivery : deliveries) {
+      IOException error;
+      try {
+        delivery.await(Math.max(deadline - System.currentTimeMillis(), 0));
+        continue;
+      } catch (TimeoutException e) {
+        error = new IOException(e.getMessage(), e);
+      } catch (IOException e) {
+        error = e;
+      }
+      if (first == null) {
+        first = error;
+        message = new StringBuilder(String.valueOf(error.getMessage()));
+      } else if (error == first || Arrays.asList(first.getSuppressed()).contains(error)) {
+        // the parts of a job lost with one connection share the error
+        continue;
+      } else {
+        first.addSuppressed(error);
+        message.append("; ").append(error.getMessage());
+      }
+    }
+    if (first != null) {
+      throw deliveries.size() == 1 ? first : new IOException(message.toString(), first);
+    }
+  }
+
+  private Connection connection(InetSocketAddress address) {
+    synchronized (connections) {
+      Connection connection = connections.get(address);
+      if (connection == null) {
+        connection = new Connection(address);
+        connections.put(address, connection);
+      }
+      return connection;
+    }
+  }
+
+  // caller holds the connection lock; a single larger job is accepted on an empty queue
+  private boolean hasRoom(Connection connection, int length) {
+    return connection.pendingBytes == 0 || connection.pendingBytes + length <= maxPendingBytes;
+  }
+
+  /**
+   * Queue a job when the printer has room for it, without waiting
+   */
+  private boolean offer(Connection connection, Job job) {
+    synchronized (connection) {
+      if (!hasRoom(connection, job.length)) {
+        return false;
+      }
+      connection.jobs.add(job);
+      connection.pendingBytes += job.length;
+    }
+    dispatch(connection, job);
+    return true;
+  }
+
+  private void dispatch(Connection connection, Job job) {
+    pendingConnections.add(connection);
+    selector.wakeup();
+    if (closed) {
+      // Closed while queuing, the selector thread may already be gone
+      job.complete(new IOException("Network printer pool is closed"));
+    }
+  }
+
+  private void signalRoom() {
+    synchronized (room) {
+      roomVersion++;
+      room.notifyAll();
+    }
+  }
+
+  /**
+   * Parse "host", "host:port" or "tcp://host:port", the port defaults to 9100
+   */
+  public static InetSocketAddress parseAddress(String address) {
+    String value = address.startsWith("tcp://") ? address.substring(6) : address;
+    int slash = value.indexOf('/');
+    if (slash >= 0) {
+      value = value.substring(0, slash);
+    }
+    int colon = value.lastIndexOf(':');
+    if (colon > 0 && value.indexOf(':') == colon) {
+      try {
+        return new InetSocketAddress(value.substring(0, colon), Integer.parseInt(value.substring(colon + 1)));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid printer address " + address);
+      }
+    }
+    if (value.isEmpty()) {
+      throw new IllegalArgumentException("Invalid printer address " + address);
+    }
+    return new InetSocketAddress(value, DEFAULT_PORT);
+  }
+
+  /**
+   * @return    true once the pool is closed, or its selector thread stopped on an error
+   */
+  public boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * Close every connection, queued jobs fail
+   */
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    selector.wakeup();
+    signalRoom();
+    try {
+      ioThread.join(SELECT_TIMEOUT_MS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // ------------------------selector thread-----------------------------
+
+  private void run() {
+    try {
+      while (!closed) {
+        selector.select(SELECT_TIMEOUT_MS);
+        long now = System.currentTimeMillis();
+
+        Connection pending;
+        while ((pending = pendingConnections.poll()) != null) {
+          prepare(pending, now);
+        }
+
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          Connection connection = (Connection) key.attachment();
+          if (!key.isValid()) {
+            continue;
+          }
+          try {
+            if (key.isConnectable()) {
+              if (!connection.channel.finishConnect()) {
+                continue;
+              }
+              connection.lastActivity = now;
+              updateInterest(connection);
+            }
+          } catch (IOException e) {
+            fail(connection, e);
+            continue;
+          }
+          try {
+            if (key.isValid() && key.isReadable()) {
+              read(connection);
+            }
+            if (key.isValid() && key.isWritable()) {
+              write(connection, now);
+            }
+          } catch (IOException e) {
+            connectionLost(connection, e, now);
+          } catch (RuntimeException e) {
+            // e.g. CancelledKeyException, only this printer is affected
+            fail(connection, new IOException("Printer " + connection.address + " connection failed", e));
+          }
+        }
+
+        checkTimeouts(now);
+      }
+    } catch (IOException | RuntimeException e) {
+      // e.g. ClosedSelectorException
+      e.printStackTrace();
+    } finally {
+      shutdown();
+    }
+  }
+
+  /**
+   * Open the connection when needed and watch it for reading and writing
+   */
+  private void prepare(Connection connection, long now) {
+    try {
+      if (connection.channel == null) {
+        SocketChannel channel = SocketChannel.open();
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        connection.channel = channel;
+        connection.generation++;
+        connection.connectDeadline = now + connectTimeoutMs;
+        connection.lastActivity = now;
+        if (channel.connect(connection.address)) {
+          connection.key = channel.register(selector, 0, connection);
+        } else {
+          connection.key = channel.register(selector, SelectionKey.OP_CONNECT, connection);
+          return;
+        }
+      }
+      updateInterest(connection);
+    } catch (IOException e) {
+      fail(connection, e);
+    } catch (RuntimeException e) {
+      // e.g. UnresolvedAddressException
+      fail(connection, new IOException("Printer " + connection.address + " can not be connected", e));
+    }
+  }
+
+  private void updateInterest(Connection connection) {
+    if (connection.key == null || !connection.key.isValid() || connection.channel.isConnectionPending()) {
+      return;
+    }
+    boolean hasJobs;
+    synchronized (connection) {
+      hasJobs = !connection.jobs.isEmpty();
+    }
+    connection.key.interestOps(SelectionKey.OP_READ | (hasJobs ? SelectionKey.OP_WRITE : 0));
+  }
+
+  /**
+   * Drop what the printer sends back
+   * @throws IOException when the printer closed the connection
+   */
+  private void read(Connection connection) throws IOException {
+    int n;
+    do {
+      readBuffer.clear();
+      n = connection.channel.read(readBuffer);
+    } while (n > 0);
+    if (n < 0) {
+      throw new IOException("Printer " + connection.address + " closed the connection");
+    }
+  }
+
+  /**
+   * Gather write the queued jobs until the socket buffer is full
+   */
+  private void write(Connection connection, long now) throws IOException {
+    ByteBuffer[] gather = new ByteBuffer[MAX_GATHER_BUFFERS];
+    while (true) {
+      int count = 0;
+      boolean starting;
+      List<Job> rejected = null;
+      synchronized (connection) {
+        Iterator<Job> jobs = connection.jobs.iterator();
+        while (jobs.hasNext()) {
+          Job job = jobs.next();
+          if (!job.accepts(connection.generation)) {
+            // an earlier part of its group went to a lost connection or failed
+            jobs.remove();
+            connection.pendingBytes -= job.length;
+            if (rejected == null) {
+              rejected = new ArrayList<>();
+            }
+            rejected.add(job);
+          }
+        }
+        if (rejected != null) {
+          connection.notifyAll();
+        }
+        starting = !connection.jobs.isEmpty() && !connection.jobs.peek().isStarted();
+        for (Job job : connection.jobs) {
+          for (ByteBuffer buffer : job.buffers) {
+            if (count == MAX_GATHER_BUFFERS) {
+              break;
+            }
+            if (buffer.hasRemaining()) {
+              gather[count++] = buffer;
+            }
+          }
+        }
+      }
+      if (rejected != null) {
+        signalRoom();
+        IOException e = new IOException("Printer " + connection.address
+          + " lost the connection during an earlier part of the job");
+        for (Job job : rejected) {
+          job.complete(e);
+        }
+      }
+      if (count == 0) {
+        break;
+      }
+      if (starting) {
+        // a close already received would silently swallow the job, while it can still be sent again
+        read(connection);
+      }
+
+      long written = connection.channel.write(gather, 0, count);
+      if (written > 0) {
+        connection.lastActivity = now;
+      }
+
+      List<Job> done = null;
+      synchronized (connection) {
+        for (Job job : connection.jobs) {
+          if (!job.isStarted()) {
+            break;
+          }
+          job.claim(connection.generation);
+        }
+        while (!connection.jobs.isEmpty() && connection.jobs.peek().isWritten()) {
+          Job job = connection.jobs.poll();
+          connection.pendingBytes -= job.length;
+          if (done == null) {
+            done = new ArrayList<>();
+          }
+          done.add(job);
+        }
+        if (done != null) {
+          connection.notifyAll();
+        }
+      }
+      if (done != null) {
+        signalRoom();
+        for (Job job : done) {
+          job.delivery.complete(null);
+        }
+      }
+      if (written == 0) {
+        // Socket buffer is full, wait for the next OP_WRITE
+        break;
+      }
+    }
+    Arrays.fill(gather, null);
+    updateInterest(connection);
+  }
+
+  private void checkTimeouts(long now) {
+    List<Connection> all;
+    synchronized (connections) {
+      all = new ArrayList<>(connections.values());
+    }
+    for (Connection connection : all) {
+      if (connection.channel == null) {
+        continue;
+      }
+      if (connection.channel.isConnectionPending()) {
+        if (now > connection.connectDeadline) {
+          fail(connection, new IOException("Printer " + connection.address + " did not connect within "
+            + connectTimeoutMs + " ms"));
+        }
+        continue;
+      }
+      boolean idle;
+      synchronized (connection) {
+        idle = connection.jobs.isEmpty();
+      }
+      if (idle && now - connection.lastActivity > idleTimeoutMs) {
+        closeChannel(connection);
+      }
+    }
+  }
+
+  /**
+   * An established connection was closed or reset by the printer
+   * Jobs partly written fail (sending them again would print them twice), the jobs not started yet
+   * are sent again once on a new connection
+   */
+  private void connectionLost(Connection connection, IOException e, long now) {
+    closeChannel(connection);
+    List<Job> failed = new ArrayList<>();
+    boolean retry;
+    synchronized (connection) {
+      Iterator<Job> jobs = connection.jobs.iterator();
+      while (jobs.hasNext()) {
+        Job job = jobs.next();
+        if (job.retried || job.isStarted() || job.isContinuation()) {
+          jobs.remove();
+          connection.pendingBytes -= job.length;
+          failed.add(job);
+        } else {
+          job.retried = true;
+        }
+      }
+      retry = !connection.jobs.isEmpty();
+      if (!failed.isEmpty()) {
+        connection.notifyAll();
+      }
+    }
+    if (!failed.isEmpty()) {
+      signalRoom();
+      for (Job job : failed) {
+        job.complete(e);
+      }
+    }
+    if (retry) {
+      prepare(connection, now);
+    }
+  }
+
+  /**
+   * Close the connection and fail its queued jobs, the next send() connects again
+   */
+  private void fail(Connection connection, IOException e) {
+    closeChannel(connection);
+    List<Job> failed;
+    synchronized (connection) {
+      failed = new ArrayList<>(connection.jobs);
+      connection.jobs.clear();
+      connection.pendingBytes = 0;
+      connection.notifyAll();
+    }
+    signalRoom();
+    for (Job job : failed) {
+      job.complete(e);
+    }
+  }
+
+  private void closeChannel(Connection connection) {
+    if (connection.key != null) {
+      connection.key.cancel();
+      connection.key = null;
+    }
+    if (connection.channel != null) {
+      try {
+        connection.channel.close();
+      } catch (IOException e) {
+        // Already closed
+      }
+      connection.channel = null;
+    }
+  }
+
+  private void shutdown() {
+    // also when the selector thread stops on an error, nothing would process the next send()
+    closed = true;
+    signalRoom();
+    List<Connection> all;
+    synchronized (connections) {
+      all = new ArrayList<>(connections.values());
+      connections.clear();
+    }
+    IOException closedError = new IOException("Network printer pool is closed");
+    for (Connection connection : all) {
+      fail(connection, closedError);
+    }
+    Connection pending;
+    while ((pending = pendingConnections.poll()) != null) {
+      fail(pending, closedError);
+    }
+    try {
+      selector.close();
+    } catch (IOException e) {
+      // Ignored
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package com.hendrysetiadi.reactnative.sunmiprinter.utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Transport sending raw commands to one or more network printers through a NetworkPrinterPool
+ * The writes of a job are collected and handed to the pool as one gather write, larger jobs are handed over
+ * in parts as they grow, the parts of a job form one NetworkPrinterPool.Group. flush() waits until every printer
+ * accepted the whole job, all printers share one deadline
+ */
+public class NetworkTransport implements PrinterTransport {
+  // Collected writes are handed to the pool once they reach this size
+  private static final int DISPATCH_BYTES = 64 * 1024;
+
+  private final NetworkPrinterPool pool;
+  private final List<InetSocketAddress> printers;
+  private final int paperDots;
+  private final long timeoutMs;
+
+  private final ArrayList<ByteBuffer> parts = new ArrayList<>();
+  private int partsBytes;
+  private final ArrayList<NetworkPrinterPool.Delivery> deliveries = new ArrayList<>();
+  // Group of the parts of the current job, created with its first part
+  private NetworkPrinterPool.Group group;
+  // Printers that already failed a part of the current job do not get the rest of it
+  private final Set<InetSocketAddress> failedPrinters = new HashSet<>();
+
+  /**
+   * @param printers      Printers receiving every job (fan-out)
+   * @param paperDots     Printable width of the paper, in dots
+   * @param timeoutMs     Maximum time to wait for the printers to accept a job
+   */
+  public NetworkTransport(NetworkPrinterPool pool, List<InetSocketAddress> printers, int paperDots, long timeoutMs) {
+    this.pool = pool;
+    this.printers = new ArrayList<>(printers);
+    this.paperDots = paperDots;
+    this.timeoutMs = timeoutMs;
+  }
+
+  @Override
+  public int getPaperDots() {
+    return paperDots;
+  }
+
+  @Override
+  public void write(byte[] data) throws IOException {
+    write(data, 0, data.length);
+  }
+
+  @Override
+  public synchronized void write(byte[] data, int offset, int length) throws IOException {
+    if (length == 0) {
+      return;
+    }
+    // Callers reuse their buffers (pooled writers, image bands), keep a copy until it is written
+    byte[] copy = new byte[length];
+    System.arraycopy(data, offset, copy, 0, length);
+    parts.add(ByteBuffer.wrap(copy));
+    partsBytes += length;
+    if (partsBytes >= DISPATCH_BYTES) {
+      dispatch();
+    }
+  }
+
+  @Override
+  public synchronized void flush() throws IOException {
+    dispatch();
+    try {
+      NetworkPrinterPool.awaitAll(deliveries, timeoutMs);
+    } catch (InterruptedException e) {
+      throw new InterruptedIOException(e.getMessage());
+    } finally {
+      deliveries.clear();
+      failedPrinters.clear();
+      group = null;
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    parts.clear();
+    partsBytes = 0;
+    deliveries.clear();
+    failedPrinters.clear();
+    group = null;
+  }
+
+  private void dispatch() throws IOException {
+    if (parts.isEmpty()) {
+      return;
+    }
+    ByteBuffer[] buffers = parts.toArray(new ByteBuffer[0]);
+    parts.clear();
+    partsBytes = 0;
+
+    for (NetworkPrinterPool.Delivery delivery : deliveries) {
+      if (delivery.isFailed()) {
+        failedPrinters.add(delivery.getAddress());
+      }
+    }
+    List<InetSocketAddress> targets = printers;
+    if (!failedPrinters.isEmpty()) {
+      targets = new ArrayList<>(printers);
+      targets.removeAll(failedPrinters);
+    }
+    if (group == null) {
+      group = new NetworkPrinterPool.Group();
+    }
+    try {
+      deliveries.addAll(pool.sendAll(targets, buffers, timeoutMs, group));
+    } catch (InterruptedException e) {
+      throw new InterruptedIOException(e.getMessage());
+    }
+  }
+}
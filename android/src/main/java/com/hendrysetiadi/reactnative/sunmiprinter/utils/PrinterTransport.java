@@ -0,0 +1,25 @@
+package com.hendrysetiadi.reactnative.sunmiprinter.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination of raw ESC/POS commands
+ * The module sends raw commands to the Sunmi printer service by default, other transports record them in memory
+ * or write them to a file or network printers, so the whole raw pipeline can run and be measured off-device
+ */
+public interface PrinterTransport extends Closeable {
+  /**
+   * Printable width of the paper, in dots (384 for 58mm, 576 for 80mm)
+   */
+  int getPaperDots();
+
+  void write(byte[] data) throws IOException;
+
+  void write(byte[] data, int offset, int length) throws IOException;
+
+  /**
+   * Push buffered commands out, called at the end of every print job
+   */
+  void flush() throws IOException;
+}
@@ -0,0 +1,229 @@
+package com.hendrysetiadi.reactnative.sunmiprinter.utils;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * QR codes rendered on the host and printed as a raster bitmap (GS v 0), any number of codes side by side
+ * Rows of the encoded matrices are packed 32 modules at a time, and the matrices of repeated payloads
+ * (store Wi-Fi, review link) are cached
+ */
+public class QrRasterizer {
+  /**
+   * Default gap between two codes, in dots
+   */
+  public static final int DEFAULT_SPACE = 40;
+
+  private static final int MATRIX_CACHE_SIZE = 32;
+
+  // height (yL yH) is a 16-bit field, and the width in bytes (xL xH) is kept to the same number of dots
+  private static final int MAX_RASTER_DOTS = 0xFFFF;
+
+  // QRCodeWriter keeps no state, one instance serves every thread
+  private static final QRCodeWriter WRITER = new QRCodeWriter();
+  private static final Map<EncodeHintType, Object> HINTS;
+
+  static {
+    Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+    hints.put(EncodeHintType.CHARACTER_SET, "utf-8");
+    HINTS = Collections.unmodifiableMap(hints);
+  }
+
+  private static final LinkedHashMap<String, BitMatrix> MATRIX_CACHE =
+    new LinkedHashMap<String, BitMatrix>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, BitMatrix> eldest) {
+        return size() > MATRIX_CACHE_SIZE;
+      }
+    };
+
+  /**
+   * Encode a QR code, cached by payload and size
+   * The returned matrix is shared and must not be modified
+   * @param data      QR Code data
+   * @param size      Width and height of the code, in dots (quiet zone included)
+   */
+  public static BitMatrix encode(String data, int size) throws WriterException {
+    String key = size + ":" + data;
+    synchronized (MATRIX_CACHE) {
+      BitMatrix cached = MATRIX_CACHE.get(key);
+      if (cached != null) {
+        return cached;
+      }
+    }
+    BitMatrix matrix = WRITER.encode(data, BarcodeFormat.QR_CODE, size, size, HINTS);
+    synchronized (MATRIX_CACHE) {
+      MATRIX_CACHE.put(key, matrix);
+    }
+    return matrix;
+  }
+
+  /**
+   * Print QR codes side by side as a raster bitmap command (GS v 0)
+   * @param data      QR Code data of each code
+   * @param size      Width and height of each code, in dots
+   * @param space     Gap between two codes, in dots
+   * @return          null when a code can not be encoded
+   * @throws IllegalArgumentException when the raster does not fit the GS v 0 header
+   */
+  public static byte[] rasterCommand(String[] data, int size, int space) {
+    return rasterCommand(data, size, space, MAX_RASTER_DOTS);
+  }
+
+  /**
+   * Print QR codes side by side as a raster bitmap command (GS v 0), checked against the paper width
+   * @param maxWidth  Printable width of the paper in dots
+   * @return          null when a code can not be encoded
+   * @throws IllegalArgumentException when the codes do not fit the paper
+   */
+  public static byte[] rasterCommand(String[] data, int size, int space, int maxWidth) {
+    if (size < 1 || size > MAX_RASTER_DOTS) {
+      throw new IllegalArgumentException("QR Code size must be between 1 and " + MAX_RASTER_DOTS);
+    }
+    if (space < 0) {
+      throw new IllegalArgumentException("QR Code space must not be negative");
+    }
+    // codes are never smaller than the requested size, so check before encoding anything
+    long requested = (long) data.length * size + (long) Math.max(data.length - 1, 0) * space;
+    if (requested > maxWidth) {
+      throw new IllegalArgumentException("QR Codes are " + requested + " dots wide, the paper only fits " + maxWidth);
+    }
+
+    BitMatrix[] matrices = new BitMatrix[data.length];
+    try {
+      for (int i = 0; i < data.length; i++) {
+        matrices[i] = encode(data[i], size);
+      }
+    } catch (WriterException e) {
+      e.printStackTrace();
+      return null;
+    }
+    // payloads too long for the size give larger codes
+    int width = rasterWidth(matrices, space);
+    if (width > maxWidth) {
+      throw new IllegalArgumentException("QR Codes are " + width + " dots wide, the paper only fits " + maxWidth);
+    }
+    return rasterCommand(matrices, space);
+  }
+
+  /**
+   * Place matrices side by side, top aligned, into a raster bitmap command (GS v 0)
+   */
+  public static byte[] rasterCommand(BitMatrix[] matrices, int space) {
+    byte[] raster = rasterBitmap(matrices, space, 4);
+    raster[0] = ESCUtil.GS;
+    raster[1] = 0x76;
+    raster[2] = 0x30;
+    raster[3] = 0x00;
+    return raster;
+  }
+
+  /**
+   * Place matrices side by side, top aligned, into a raster bitmap
+   * @param offset    Bytes left free before the bitmap header (xL xH yL yH)
+   */
+  public static byte[] rasterBitmap(BitMatrix[] matrices, int space, int offset) {
+    int widthDots = rasterWidth(matrices, space);
+    int height = 0;
+    for (BitMatrix matrix : matrices) {
+      height = Math.max(height, matrix.getHeight());
+    }
+    if (widthDots > MAX_RASTER_DOTS || height > MAX_RASTER_DOTS) {
+      throw new IllegalArgumentException("QR Code raster is " + widthDots + " x " + height
+        + " dots, GS v 0 takes at most " + MAX_RASTER_DOTS);
+    }
+    int bytesPerRow = (widthDots + 7) / 8;
+
+    byte[] rv = new byte[offset + 4 + bytesPerRow * height];
+    int k = offset;
+    rv[k++] = (byte) bytesPerRow;//xL
+    rv[k++] = (byte) (bytesPerRow >> 8);//xH
+    rv[k++] = (byte) height;
+    rv[k++] = (byte) (height >> 8);
+
+    BitArray row = new BitArray(0);
+    for (int y = 0; y < height; y++) {
+      RowPacker packer = new RowPacker(rv, k);
+      for (int i = 0; i < matrices.length; i++) {
+        BitMatrix matrix = matrices[i];
+        if (i > 0) {
+          packer.skip(space);
+        }
+        if (y >= matrix.getHeight()) {
+          packer.skip(matrix.getWidth());
+          continue;
+        }
+        row = matrix.getRow(y, row);
+        int[] words = row.getBitArray();
+        int width = matrix.getWidth();
+        for (int x = 0; x < width; x += 32) {
+          // BitArray keeps the leftmost module in the lowest bit, the printer wants it in the highest
+          packer.put(Integer.reverse(words[x >> 5]), Math.min(32, width - x));
+        }
+      }
+      packer.flush();
+      k += bytesPerRow;
+    }
+    return rv;
+  }
+
+  private static int rasterWidth(BitMatrix[] matrices, int space) {
+    long width = 0;
+    for (int i = 0; i < matrices.length; i++) {
+      width += matrices[i].getWidth() + (i > 0 ? space : 0);
+    }
+    return (int) Math.min(width, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Writes bits MSB first into one raster row
+   */
+  private static final class RowPacker {
+    private final byte[] dst;
+    private int pos;
+    private long acc;
+    private int accBits;
+
+    RowPacker(byte[] dst, int pos) {
+      this.dst = dst;
+      this.pos = pos;
+    }
+
+    /**
+     * @param bits    Bits aligned to the highest bit of the int
+     * @param count   Number of bits to take (1 - 32)
+     */
+    void put(int bits, int count) {
+      acc = (acc << count) | ((bits & 0xFFFFFFFFL) >>> (32 - count));
+      accBits += count;
+      while (accBits >= 8) {
+        accBits -= 8;
+        dst[pos++] = (byte) (acc >>> accBits);
+      }
+    }
+
+    void skip(int count) {
+      while (count > 0) {
+        int n = Math.min(count, 32);
+        put(0, n);
+        count -= n;
+      }
+    }
+
+    void flush() {
+      if (accBits > 0) {
+        dst[pos++] = (byte) (acc << (8 - accBits));
+        accBits = 0;
+      }
+    }
+  }
+}
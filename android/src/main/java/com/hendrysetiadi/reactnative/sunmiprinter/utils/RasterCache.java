@@ -0,0 +1,112 @@
+package com.hendrysetiadi.reactnative.sunmiprinter.utils;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of already rasterized images (ready to send ESC/POS bytes), bounded by the total byte size
+ * Keys are built from a hash of the encoded image content plus the conversion parameters,
+ * so a repeated image skips both decoding and conversion
+ */
+public class RasterCache {
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final long maxBytes;
+  private long bytes;
+  private long hits;
+  private long misses;
+
+  /**
+   * @param maxBytes    Maximum total size of the cached rasters
+   */
+  public RasterCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Build the cache key of an encoded image
+   * @param data          Encoded image content (e.g. Base-64 string)
+   * @param width         Target width
+   * @param height        Target height
+   * @param ditherMode    One of the RasterEncoder.DITHER_* modes
+   */
+  public static String contentKey(CharSequence data, int width, int height, int ditherMode) {
+    // 64-bit FNV-1a over the characters, cheap enough to run on every print
+    long hash = FNV_OFFSET_BASIS;
+    for (int i = 0, n = data.length(); i < n; i++) {
+      hash ^= data.charAt(i);
+      hash *= FNV_PRIME;
+    }
+    return Long.toHexString(hash) + ':' + data.length() + ':' + width + 'x' + height + ':' + ditherMode;
+  }
+
+  /**
+   * Build the cache key of an encoded image file
+   * @param data          Encoded image content (e.g. memory mapped file), read from its position to its limit
+   */
+  public static String contentKey(ByteBuffer data, int width, int height, int ditherMode) {
+    long hash = FNV_OFFSET_BASIS;
+    int length = data.remaining();
+    for (int i = data.position(), n = data.limit(); i < n; i++) {
+      hash ^= data.get(i) & 0xFF;
+      hash *= FNV_PRIME;
+    }
+    return Long.toHexString(hash) + ":f" + length + ':' + width + 'x' + height + ':' + ditherMode;
+  }
+
+  /**
+   * @return    Cached raster, or null when the key is not cached
+   */
+  public synchronized byte[] get(String key) {
+    byte[] value = entries.get(key);
+    if (value != null) {
+      hits++;
+    } else {
+      misses++;
+    }
+    return value;
+  }
+
+  public synchronized void put(String key, byte[] value) {
+    if (value.length > maxBytes) {
+      return;
+    }
+    byte[] previous = entries.put(key, value);
+    if (previous != null) {
+      bytes -= previous.length;
+    }
+    bytes += value.length;
+
+    Iterator<Map.Entry<String, byte[]>> it = entries.entrySet().iterator();
+    while (bytes > maxBytes && it.hasNext()) {
+      Map.Entry<String, byte[]> eldest = it.next();
+      bytes -= eldest.getValue().length;
+      it.remove();
+    }
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+    bytes = 0;
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  public synchronized int getEntryCount() {
+    return entries.size();
+  }
+
+  public synchronized long getBytes() {
+    return bytes;
+  }
+}
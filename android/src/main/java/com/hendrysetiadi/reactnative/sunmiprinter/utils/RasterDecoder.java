@@ -0,0 +1,172 @@
+package com.hendrysetiadi.reactnative.sunmiprinter.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+
+import java.io.FileDescriptor;
+import java.io.IOException;
+
+/**
+ * Decodes an encoded image into 1-bpp raster rows, strip by strip
+ * Each strip is decoded with BitmapRegionDecoder already sub-sampled close to the target size and only
+ * scaled by the remaining factor, so the peak memory is one strip bitmap whatever the height of the image
+ * (JPEG, PNG and WebP, other formats throw IOException when opened)
+ */
+public class RasterDecoder {
+  /**
+   * Number of output rows decoded per region
+   */
+  public static final int STRIP_ROWS = 32;
+
+  /**
+   * Maximum number of rows of one raster bitmap command
+   */
+  public static final int MAX_BAND_ROWS = 0xFFFF;
+
+  private final BitmapRegionDecoder decoder;
+  private final BitmapFactory.Options options = new BitmapFactory.Options();
+  private final Rect region = new Rect();
+  private final RasterEncoder encoder;
+  private final int srcWidth;
+  private final int srcHeight;
+  private final int width;
+  private final int height;
+  private final int[] pixels;
+  private int row;
+
+  /**
+   * @param data          Encoded image
+   * @param maxWidth      Maximum width of the raster, the image is only scaled down
+   * @param maxHeight     Maximum height of the raster
+   * @param ditherMode    One of the RasterEncoder.DITHER_* modes
+   * @throws IOException when the image format is not supported
+   */
+  public static RasterDecoder newInstance(byte[] data, int maxWidth, int maxHeight, int ditherMode) throws IOException {
+    return new RasterDecoder(BitmapRegionDecoder.newInstance(data, 0, data.length, false), maxWidth, maxHeight, ditherMode);
+  }
+
+  /**
+   * @param fd            Encoded image file, read from its start
+   */
+  public static RasterDecoder newInstance(FileDescriptor fd, int maxWidth, int maxHeight, int ditherMode) throws IOException {
+    return new RasterDecoder(BitmapRegionDecoder.newInstance(fd, false), maxWidth, maxHeight, ditherMode);
+  }
+
+  private RasterDecoder(BitmapRegionDecoder decoder, int maxWidth, int maxHeight, int ditherMode) {
+    this.decoder = decoder;
+    srcWidth = decoder.getWidth();
+    srcHeight = decoder.getHeight();
+
+    float scale = BitmapUtil.getScale(srcWidth, srcHeight, maxWidth, maxHeight);
+    width = Math.max(Math.round(srcWidth * scale), 1);
+    height = Math.max(Math.round(srcHeight * scale), 1);
+
+    options.inSampleSize = BitmapUtil.getSampleSize(scale);
+    options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+    encoder = new RasterEncoder(width, ditherMode);
+    pixels = new int[width * Math.min(STRIP_ROWS, height)];
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  public int getBytesPerRow() {
+    return RasterEncoder.bytesPerRow(width);
+  }
+
+  public int getRemainingRows() {
+    return height - row;
+  }
+
+  /**
+   * Decode the next rows of the image
+   * @param dst       Destination of the raster rows
+   * @param offset    Offset of the first row in dst
+   * @param maxRows   Maximum number of rows to decode
+   * @return          Number of rows written, 0 when the whole image is decoded
+   */
+  public int decodeRows(byte[] dst, int offset, int maxRows) {
+    int bw = getBytesPerRow();
+    int done = 0;
+    while (done < maxRows && row < height) {
+      int rows = Math.min(Math.min(STRIP_ROWS, maxRows - done), height - row);
+      decodeStrip(rows);
+      for (int i = 0; i < rows; i++) {
+        encoder.encodeRow(pixels, i * width, dst, offset);
+        offset += bw;
+      }
+      row += rows;
+      done += rows;
+    }
+    return done;
+  }
+
+  /**
+   * Decode the whole image into raster bitmap commands (GS v 0)
+   * Images taller than MAX_BAND_ROWS are split into consecutive commands, the height field is 16-bit
+   * @param mode    Raster mode (0 = Normal, 1 = Double width, 2 = Double height, 3 = Quadruple)
+   */
+  public byte[] decodeRasterCommand(int mode) {
+    int bw = getBytesPerRow();
+    int rows = getRemainingRows();
+    int bands = (rows + MAX_BAND_ROWS - 1) / MAX_BAND_ROWS;
+    byte[] result = new byte[rows * bw + bands * 8];
+    int offset = 0;
+    while (getRemainingRows() > 0) {
+      offset += decodeBand(result, offset, Math.min(MAX_BAND_ROWS, getRemainingRows()), mode);
+    }
+    return result;
+  }
+
+  /**
+   * Decode the next rows of the image as one raster bitmap command (GS v 0)
+   * @param dst       Destination, needs rows * getBytesPerRow() + 8 bytes from offset
+   * @param offset    Offset of the command in dst
+   * @param rows      Number of rows of the band (at most MAX_BAND_ROWS), the last band of the image can be shorter
+   * @param mode      Raster mode
+   * @return          Number of bytes written
+   */
+  public int decodeBand(byte[] dst, int offset, int rows, int mode) {
+    int bw = getBytesPerRow();
+    rows = Math.min(Math.min(rows, MAX_BAND_ROWS), getRemainingRows());
+    dst[offset] = ESCUtil.GS;
+    dst[offset + 1] = 0x76;
+    dst[offset + 2] = 0x30;
+    dst[offset + 3] = (byte) mode;
+    RasterEncoder.writeRasterHeader(dst, offset + 4, bw, rows);
+    decodeRows(dst, offset + 8, rows);
+    return rows * bw + 8;
+  }
+
+  public void recycle() {
+    decoder.recycle();
+  }
+
+  private void decodeStrip(int rows) {
+    // source rows covering the output rows [row, row + rows)
+    int top = (int) ((long) row * srcHeight / height);
+    int bottom = (int) Math.min(srcHeight, ((long) (row + rows) * srcHeight + height - 1) / height);
+    region.set(0, top, srcWidth, bottom);
+
+    Bitmap strip = decoder.decodeRegion(region, options);
+    if (strip == null) {
+      throw new IllegalStateException("Unable to decode the image rows " + top + " - " + bottom);
+    }
+    if (strip.getWidth() != width || strip.getHeight() != rows) {
+      Bitmap scaled = Bitmap.createScaledBitmap(strip, width, rows, true);
+      if (scaled != strip) {
+        strip.recycle();
+      }
+      strip = scaled;
+    }
+    strip.getPixels(pixels, 0, width, 0, 0, width, rows);
+    strip.recycle();
+  }
+}
@@ -0,0 +1,254 @@
+package com.hendrysetiadi.reactnative.sunmiprinter.utils;
+
+import java.util.Arrays;
+
+/**
+ * Packs ARGB pixel rows into 1-bpp raster rows (MSB first, 1 = black)
+ * Works on plain int[] pixel strips so it does not depend on android.graphics
+ *
+ * The static packRow() is the plain threshold conversion, an instance keeps the error rows
+ * of the selected dither mode and must be fed the rows of one image from top to bottom
+ */
+public class RasterEncoder {
+  /**
+   * Dither modes
+   */
+  public static final int DITHER_NONE = 0;
+  public static final int DITHER_FLOYD_STEINBERG = 1;
+  public static final int DITHER_ATKINSON = 2;
+  public static final int DITHER_BAYER = 3;
+
+  /**
+   * Pixels with a luminance below this value are printed black
+   */
+  public static final int GRAY_THRESHOLD = 200;
+
+  // luminance * 1000 compared with the threshold, same result as (int) (0.299 * r + 0.587 * g + 0.114 * b) < 200
+  private static final int LUMA_THRESHOLD = GRAY_THRESHOLD * 1000;
+
+  // error diffusion decides around the middle gray, the plain threshold keeps the historic value above
+  private static final int DITHER_THRESHOLD = 128;
+
+  // 8x8 ordered dither matrix
+  private static final int[] BAYER_8X8 = {
+     0, 32,  8, 40,  2, 34, 10, 42,
+    48, 16, 56, 24, 50, 18, 58, 26,
+    12, 44,  4, 36, 14, 46,  6, 38,
+    60, 28, 52, 20, 62, 30, 54, 22,
+     3, 35, 11, 43,  1, 33,  9, 41,
+    51, 19, 59, 27, 49, 17, 57, 25,
+    15, 47,  7, 39, 13, 45,  5, 37,
+    63, 31, 55, 23, 61, 29, 53, 21
+  };
+
+  // error rows are padded by 2 pixels on each side so the kernels never need bound checks
+  private static final int PAD = 2;
+
+  private final int width;
+  private final int mode;
+  private int[] errCurrent;
+  private int[] errNext;
+  private int[] errNext2;
+  private int row;
+
+  /**
+   * @param width   Width of the image in pixels
+   * @param mode    One of the DITHER_* modes
+   */
+  public RasterEncoder(int width, int mode) {
+    if (mode < DITHER_NONE || mode > DITHER_BAYER) {
+      throw new IllegalArgumentException("Unknown dither mode " + mode);
+    }
+    this.width = width;
+    this.mode = mode;
+    if (mode == DITHER_FLOYD_STEINBERG || mode == DITHER_ATKINSON) {
+      errCurrent = new int[width + PAD * 2];
+      errNext = new int[width + PAD * 2];
+      errNext2 = new int[width + PAD * 2];
+    }
+  }
+
+  public int getMode() {
+    return mode;
+  }
+
+  /**
+   * Convert the next row of the image
+   * @param pixels      ARGB pixels
+   * @param offset      Offset of the first pixel of the row
+   * @param dst         Destination, every byte of the row is overwritten
+   * @param dstOffset   Offset of the first byte of the row
+   */
+  public void encodeRow(int[] pixels, int offset, byte[] dst, int dstOffset) {
+    switch (mode) {
+      case DITHER_FLOYD_STEINBERG:
+        floydSteinbergRow(pixels, offset, dst, dstOffset);
+        rotateErrorRows();
+        break;
+      case DITHER_ATKINSON:
+        atkinsonRow(pixels, offset, dst, dstOffset);
+        rotateErrorRows();
+        break;
+      case DITHER_BAYER:
+        bayerRow(pixels, offset, dst, dstOffset);
+        break;
+      default:
+        packRow(pixels, offset, width, dst, dstOffset);
+        break;
+    }
+    row++;
+  }
+
+  private void floydSteinbergRow(int[] pixels, int offset, byte[] dst, int dstOffset) {
+    int[] cur = errCurrent;
+    int[] next = errNext;
+    int b = 0;
+    int d = dstOffset;
+    for (int x = 0; x < width; x++) {
+      int e = x + PAD;
+      int gray = luminance(pixels[offset + x]) + (cur[e] >> 4);
+      int err;
+      if (gray < DITHER_THRESHOLD) {
+        b |= 0x80 >>> (x & 7);
+        err = gray;
+      } else {
+        err = gray - 255;
+      }
+      // errors are kept in 1/16 units: 7 right, 3 down-left, 5 down, 1 down-right
+      cur[e + 1] += err * 7;
+      next[e - 1] += err * 3;
+      next[e] += err * 5;
+      next[e + 1] += err;
+      if ((x & 7) == 7) {
+        dst[d++] = (byte) b;
+        b = 0;
+      }
+    }
+    if ((width & 7) != 0) {
+      dst[d] = (byte) b;
+    }
+  }
+
+  private void atkinsonRow(int[] pixels, int offset, byte[] dst, int dstOffset) {
+    int[] cur = errCurrent;
+    int[] next = errNext;
+    int[] next2 = errNext2;
+    int b = 0;
+    int d = dstOffset;
+    for (int x = 0; x < width; x++) {
+      int e = x + PAD;
+      int gray = luminance(pixels[offset + x]) + cur[e];
+      int err;
+      if (gray < DITHER_THRESHOLD) {
+        b |= 0x80 >>> (x & 7);
+        err = gray >> 3;
+      } else {
+        err = (gray - 255) >> 3;
+      }
+      // 1/8 of the error to six neighbours, the remaining 2/8 are dropped
+      cur[e + 1] += err;
+      cur[e + 2] += err;
+      next[e - 1] += err;
+      next[e] += err;
+      next[e + 1] += err;
+      next2[e] += err;
+      if ((x & 7) == 7) {
+        dst[d++] = (byte) b;
+        b = 0;
+      }
+    }
+    if ((width & 7) != 0) {
+      dst[d] = (byte) b;
+    }
+  }
+
+  private void bayerRow(int[] pixels, int offset, byte[] dst, int dstOffset) {
+    int base = (row & 7) << 3;
+    int b = 0;
+    int d = dstOffset;
+    for (int x = 0; x < width; x++) {
+      // thresholds spread over 2 - 254
+      int threshold = (BAYER_8X8[base + (x & 7)] << 2) + 2;
+      if (luminance(pixels[offset + x]) < threshold) {
+        b |= 0x80 >>> (x & 7);
+      }
+      if ((x & 7) == 7) {
+        dst[d++] = (byte) b;
+        b = 0;
+      }
+    }
+    if ((width & 7) != 0) {
+      dst[d] = (byte) b;
+    }
+  }
+
+  private void rotateErrorRows() {
+    int[] recycled = errCurrent;
+    errCurrent = errNext;
+    errNext = errNext2;
+    errNext2 = recycled;
+    Arrays.fill(errNext2, 0);
+  }
+
+  /**
+   * Number of bytes of one raster row
+   */
+  public static int bytesPerRow(int width) {
+    return (width + 7) >> 3;
+  }
+
+  /**
+   * Integer luminance (0 - 255) of an ARGB pixel
+   */
+  public static int luminance(int argb) {
+    return (((argb >> 16) & 0xFF) * 299 + ((argb >> 8) & 0xFF) * 587 + (argb & 0xFF) * 114) / 1000;
+  }
+
+  public static boolean isBlack(int argb) {
+    return ((argb >> 16) & 0xFF) * 299 + ((argb >> 8) & 0xFF) * 587 + (argb & 0xFF) * 114 < LUMA_THRESHOLD;
+  }
+
+  /**
+   * Threshold one row of pixels into dst
+   * @param pixels      ARGB pixels
+   * @param offset      Offset of the first pixel of the row
+   * @param width       Number of pixels in the row
+   * @param dst         Destination, every byte of the row is overwritten
+   * @param dstOffset   Offset of the first byte of the row
+   */
+  public static void packRow(int[] pixels, int offset, int width, byte[] dst, int dstOffset) {
+    int full = width >> 3;
+    int p = offset;
+    int d = dstOffset;
+    for (int i = 0; i < full; i++) {
+      int b = 0;
+      for (int bit = 0x80; bit != 0; bit >>= 1) {
+        if (isBlack(pixels[p++])) {
+          b |= bit;
+        }
+      }
+      dst[d++] = (byte) b;
+    }
+
+    int rest = width & 7;
+    if (rest != 0) {
+      int b = 0;
+      for (int n = 0, bit = 0x80; n < rest; n++, bit >>= 1) {
+        if (isBlack(pixels[p++])) {
+          b |= bit;
+        }
+      }
+      dst[d] = (byte) b;
+    }
+  }
+
+  /**
+   * Write the 4 bytes raster size header (xL xH yL yH)
+   */
+  public static void writeRasterHeader(byte[] dst, int offset, int bytesPerRow, int height) {
+    dst[offset] = (byte) bytesPerRow;//xL
+    dst[offset + 1] = (byte) (bytesPerRow >> 8);//xH
+    dst[offset + 2] = (byte) height;
+    dst[offset + 3] = (byte) (height >> 8);
+  }
+}
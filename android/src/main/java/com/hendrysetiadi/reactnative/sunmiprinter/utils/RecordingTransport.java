@@ -0,0 +1,65 @@
+package com.hendrysetiadi.reactnative.sunmiprinter.utils;
+
+/**
+ * In-memory transport, keeps every raw command written to it
+ * Used to capture golden outputs and to measure the raw pipeline without a printer
+ */
+public class RecordingTransport implements PrinterTransport {
+  private final int paperDots;
+  private final EscPosWriter recording = new EscPosWriter(64 * 1024);
+  private int writeCount;
+
+  /**
+   * @param paperDots     Printable width of the simulated paper, in dots
+   */
+  public RecordingTransport(int paperDots) {
+    this.paperDots = paperDots;
+  }
+
+  @Override
+  public int getPaperDots() {
+    return paperDots;
+  }
+
+  @Override
+  public void write(byte[] data) {
+    write(data, 0, data.length);
+  }
+
+  @Override
+  public synchronized void write(byte[] data, int offset, int length) {
+    recording.write(data, offset, length);
+    writeCount++;
+  }
+
+  @Override
+  public void flush() {
+  }
+
+  @Override
+  public void close() {
+  }
+
+  /**
+   * Everything written since the last reset()
+   */
+  public synchronized byte[] toByteArray() {
+    return recording.toByteArray();
+  }
+
+  public synchronized int size() {
+    return recording.size();
+  }
+
+  /**
+   * Number of write() calls since the last reset(), one per sendRAWData() on a real printer
+   */
+  public synchronized int getWriteCount() {
+    return writeCount;
+  }
+
+  public synchronized void reset() {
+    recording.reset();
+    writeCount = 0;
+  }
+}
@@ -0,0 +1,59 @@
+package com.hendrysetiadi.reactnative.sunmiprinter.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Transport writing raw commands to an output stream, e.g. a capture file
+ * Network printers go through NetworkTransport, which keeps pooled connections
+ */
+public class StreamTransport implements PrinterTransport {
+  private static final int BUFFER_SIZE = 16 * 1024;
+
+  private final OutputStream out;
+  private final int paperDots;
+
+  /**
+   * @param out           Destination, closed with the transport
+   * @param paperDots     Printable width of the paper, in dots
+   */
+  public StreamTransport(OutputStream out, int paperDots) {
+    this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+    this.paperDots = paperDots;
+  }
+
+  /**
+   * Write raw commands to a file, an existing file is replaced
+   */
+  public static StreamTransport open(File file, int paperDots) throws IOException {
+    return new StreamTransport(new FileOutputStream(file), paperDots);
+  }
+
+  @Override
+  public int getPaperDots() {
+    return paperDots;
+  }
+
+  @Override
+  public void write(byte[] data) throws IOException {
+    write(data, 0, data.length);
+  }
+
+  @Override
+  public synchronized void write(byte[] data, int offset, int length) throws IOException {
+    out.write(data, offset, length);
+  }
+
+  @Override
+  public synchronized void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    out.close();
+  }
+}
@@ -0,0 +1,261 @@
+package com.hendrysetiadi.reactnative.sunmiprinter.utils;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column layout of text for the printer fonts
+ * Text is measured in half-width columns, the same way the printer encodes it (GB18030): single byte characters
+ * take 1 column, every multi-byte character (CJK, but also symbols like × ° § €, Greek, Cyrillic, box drawing,
+ * emoji) prints as a full-width glyph and takes 2. Combining marks and zero-width characters take none.
+ * Cells are wrapped on spaces inside their column (words longer than the column are split), then aligned
+ */
+public class TextLayout {
+  public static final int ALIGN_LEFT = 0;
+  public static final int ALIGN_CENTER = 1;
+  public static final int ALIGN_RIGHT = 2;
+
+  /**
+   * Width of one half-width character of the default 24px font, in dots
+   */
+  public static final int CHAR_DOTS = 12;
+
+  private static final int WIDTH_CACHE_SIZE = 512;
+  private static final int MAX_CACHED_LENGTH = 64;
+
+  private static final TextLayout DEFAULT = new TextLayout();
+
+  private static final Charset PRINTER_CHARSET = Charset.forName("GB18030");
+
+  // width + 1 of each BMP character once encoded, 0 = not measured yet
+  private static final byte[] BMP_WIDTHS = new byte[0x10000];
+
+  // measured widths of repeated strings (item names, column titles), access ordered for LRU eviction
+  private final LinkedHashMap<String, Integer> widthCache = new LinkedHashMap<String, Integer>(64, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+      return size() > WIDTH_CACHE_SIZE;
+    }
+  };
+
+  /**
+   * Shared instance, its width cache is shared by every print call
+   */
+  public static TextLayout getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * Number of half-width characters per line
+   * @param paperDots     Printable width of the paper (384 for 58mm, 576 for 80mm)
+   * @param scale         Character size multiplier (1 - 8)
+   */
+  public static int columnsPerLine(int paperDots, int scale) {
+    return Math.max(paperDots / (CHAR_DOTS * Math.max(scale, 1)), 1);
+  }
+
+  /**
+   * Width of one character in half-width columns
+   */
+  public static int charWidth(int codePoint) {
+    if (codePoint < 0x20 || (codePoint >= 0x7F && codePoint < 0xA0)) {
+      return 0;
+    }
+    if (codePoint < 0x7F) {
+      return 1;
+    }
+    if (codePoint >= 0x10000) {
+      // every supplementary character is a four byte GB18030 sequence
+      return isZeroWidth(codePoint) ? 0 : 2;
+    }
+    int cached = BMP_WIDTHS[codePoint];
+    if (cached != 0) {
+      return cached - 1;
+    }
+    int width = isZeroWidth(codePoint) ? 0 : encodedWidth((char) codePoint);
+    // racing threads store the same value
+    BMP_WIDTHS[codePoint] = (byte) (width + 1);
+    return width;
+  }
+
+  private static boolean isZeroWidth(int codePoint) {
+    int type = Character.getType(codePoint);
+    return type == Character.NON_SPACING_MARK || type == Character.ENCLOSING_MARK || type == Character.FORMAT;
+  }
+
+  /**
+   * 1 for a single byte GB18030 character, 2 for a double or four byte one
+   */
+  private static int encodedWidth(char c) {
+    return String.valueOf(c).getBytes(PRINTER_CHARSET).length > 1 ? 2 : 1;
+  }
+
+  /**
+   * Width of a text in half-width columns
+   */
+  public int width(String text) {
+    int length = text.length();
+    boolean ascii = true;
+    for (int i = 0; i < length && ascii; i++) {
+      char c = text.charAt(i);
+      ascii = c >= 0x20 && c < 0x7F;
+    }
+    if (ascii) {
+      return length;
+    }
+    if (length > MAX_CACHED_LENGTH) {
+      return measure(text);
+    }
+
+    synchronized (widthCache) {
+      Integer cached = widthCache.get(text);
+      if (cached != null) {
+        return cached;
+      }
+    }
+    int width = measure(text);
+    synchronized (widthCache) {
+      widthCache.put(text, width);
+    }
+    return width;
+  }
+
+  private static int measure(String text) {
+    int width = 0;
+    for (int i = 0; i < text.length(); ) {
+      int cp = text.codePointAt(i);
+      width += charWidth(cp);
+      i += Character.charCount(cp);
+    }
+    return width;
+  }
+
+  /**
+   * Wrap a text into lines no wider than maxWidth columns
+   * Lines are broken on spaces and line feeds, words wider than the line (e.g. CJK text) are split by character
+   */
+  public List<String> wrap(String text, int maxWidth) {
+    List<String> lines = new ArrayList<>();
+    if (maxWidth <= 0) {
+      lines.add("");
+      return lines;
+    }
+
+    for (String paragraph : text.split("\n", -1)) {
+      StringBuilder line = new StringBuilder();
+      int lineWidth = 0;
+      boolean first = true;
+      for (String word : paragraph.split(" ", -1)) {
+        int wordWidth = width(word);
+        int needed = first ? wordWidth : lineWidth + 1 + wordWidth;
+        if (needed <= maxWidth) {
+          if (!first) {
+            line.append(' ');
+          }
+          line.append(word);
+          lineWidth = needed;
+          first = false;
+          continue;
+        }
+
+        if (!first) {
+          lines.add(line.toString());
+          line.setLength(0);
+          lineWidth = 0;
+        }
+        if (wordWidth <= maxWidth) {
+          line.append(word);
+          lineWidth = wordWidth;
+        } else {
+          // split the word, the last part stays on the line
+          for (int i = 0; i < word.length(); ) {
+            int cp = word.codePointAt(i);
+            int w = charWidth(cp);
+            if (lineWidth + w > maxWidth && lineWidth > 0) {
+              lines.add(line.toString());
+              line.setLength(0);
+              lineWidth = 0;
+            }
+            line.appendCodePoint(cp);
+            lineWidth += w;
+            i += Character.charCount(cp);
+          }
+        }
+        first = false;
+      }
+      lines.add(line.toString());
+    }
+    return lines;
+  }
+
+  /**
+   * Lay out one row of columns, each cell is wrapped inside its share of the line and aligned
+   * @param columns       Text for each Column
+   * @param weights       Width ratio for each Column
+   * @param alignments    Alignment for each Column (0 = Left, 1 = Center, 2 = Right)
+   * @param lineColumns   Number of half-width characters per line
+   * @return              Printed lines of the row, without line feeds
+   */
+  public List<String> layoutRow(String[] columns, int[] weights, int[] alignments, int lineColumns) {
+    int count = Math.min(columns.length, weights.length);
+    int totalWeight = 0;
+    for (int i = 0; i < count; i++) {
+      totalWeight += Math.max(weights[i], 0);
+    }
+    List<String> result = new ArrayList<>();
+    if (totalWeight <= 0) {
+      result.add("");
+      return result;
+    }
+
+    int[] columnWidths = new int[count];
+    List<List<String>> cells = new ArrayList<>(count);
+    int used = 0;
+    int rows = 1;
+    for (int i = 0; i < count; i++) {
+      columnWidths[i] = i == count - 1
+        ? lineColumns - used
+        : lineColumns * Math.max(weights[i], 0) / totalWeight;
+      used += columnWidths[i];
+
+      List<String> cell = wrap(columns[i] == null ? "" : columns[i], columnWidths[i]);
+      cells.add(cell);
+      rows = Math.max(rows, cell.size());
+    }
+
+    StringBuilder line = new StringBuilder(lineColumns);
+    for (int r = 0; r < rows; r++) {
+      line.setLength(0);
+      for (int i = 0; i < count; i++) {
+        List<String> cell = cells.get(i);
+        String content = r < cell.size() ? cell.get(r) : "";
+        int padding = Math.max(columnWidths[i] - width(content), 0);
+        int alignment = i < alignments.length ? alignments[i] : ALIGN_LEFT;
+        int left = alignment == ALIGN_RIGHT ? padding : alignment == ALIGN_CENTER ? padding / 2 : 0;
+        appendSpaces(line, left);
+        line.append(content);
+        appendSpaces(line, padding - left);
+      }
+      result.add(line.toString());
+    }
+    return result;
+  }
+
+  /**
+   * Lay out one row of columns and write its lines
+   */
+  public void writeRow(EscPosWriter writer, String[] columns, int[] weights, int[] alignments, int lineColumns) {
+    for (String line : layoutRow(columns, weights, alignments, lineColumns)) {
+      writer.text(line).newLine();
+    }
+  }
+
+  private static void appendSpaces(StringBuilder sb, int n) {
+    for (int i = 0; i < n; i++) {
+      sb.append(' ');
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package com.hendrysetiadi.reactnative.sunmiprinter.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class BarcodeRasterizerTest {
+  // valid data for every supported symbology, indexed by symbology
+  private static final String[] SAMPLES = new String[BarcodeRasterizer.GS1_128 + 1];
+
+  static {
+    SAMPLES[BarcodeRasterizer.UPC_A] = "036000291452";
+    SAMPLES[BarcodeRasterizer.EAN13] = "5901234123457";
+    SAMPLES[BarcodeRasterizer.EAN8] = "96385074";
+    SAMPLES[BarcodeRasterizer.CODE39] = "ABC-123";
+    SAMPLES[BarcodeRasterizer.ITF] = "12345678";
+    SAMPLES[BarcodeRasterizer.CODABAR] = "A12345B";
+    SAMPLES[BarcodeRasterizer.CODE128] = "{BOrder 42";
+    SAMPLES[BarcodeRasterizer.GS1_128] = "0109501101530003" + "10ABC" + '\u001d' + "21XYZ";
+  }
+
+  @Test
+  public void everySupportedSymbologyIsRasterized() {
+    int supported = 0;
+    for (int symbology = 0; symbology < SAMPLES.length; symbology++) {
+      if (!BarcodeRasterizer.isSupported(symbology)) {
+        continue;
+      }
+      supported++;
+      String data = SAMPLES[symbology];
+      byte[] raster = BarcodeRasterizer.rasterCommand(data, symbology, 80, 1, 576);
+
+      assertEquals(ESCUtil.GS, raster[0]);
+      assertEquals(0x76, raster[1]);
+      assertEquals(0x30, raster[2]);
+      int bytesPerRow = (raster[4] & 0xFF) | (raster[5] & 0xFF) << 8;
+      int height = (raster[6] & 0xFF) | (raster[7] & 0xFF) << 8;
+      assertEquals(80, height);
+      assertEquals("symbology " + symbology, 8 + bytesPerRow * height, raster.length);
+      assertTrue("symbology " + symbology + " fits the paper", bytesPerRow * 8 <= 576);
+
+      byte[] firstRow = Arrays.copyOfRange(raster, 8, 8 + bytesPerRow);
+      boolean bars = false;
+      for (byte b : firstRow) {
+        bars |= b != 0;
+      }
+      assertTrue("symbology " + symbology + " has bars", bars);
+      byte[] lastRow = Arrays.copyOfRange(raster, raster.length - bytesPerRow, raster.length);
+      assertArrayEquals(firstRow, lastRow);
+    }
+    assertEquals(8, supported);
+  }
+
+  @Test
+  public void upcAIsEncodedAsEan13WithLeadingZero() {
+    boolean[] upcA = BarcodeRasterizer.encode("036000291452", BarcodeRasterizer.UPC_A);
+    boolean[] ean13 = BarcodeRasterizer.encode("0036000291452", BarcodeRasterizer.EAN13);
+    assertEquals(95, upcA.length);
+    assertTrue(Arrays.equals(ean13, upcA));
+  }
+
+  @Test
+  public void upcACheckDigitIsAdded() {
+    boolean[] withoutCheckDigit = BarcodeRasterizer.encode("03600029145", BarcodeRasterizer.UPC_A);
+    boolean[] withCheckDigit = BarcodeRasterizer.encode("036000291452", BarcodeRasterizer.UPC_A);
+    assertTrue(Arrays.equals(withCheckDigit, withoutCheckDigit));
+  }
+
+  @Test
+  public void invalidDataIsRejected() {
+    assertThrows(IllegalArgumentException.class,
+      () -> BarcodeRasterizer.encode("12345", BarcodeRasterizer.UPC_A));
+    assertThrows(IllegalArgumentException.class,
+      () -> BarcodeRasterizer.encode("03600029145X", BarcodeRasterizer.UPC_A));
+    assertThrows(IllegalArgumentException.class,
+      () -> BarcodeRasterizer.encode("12345", BarcodeRasterizer.EAN13));
+  }
+
+  @Test
+  public void unsupportedSymbologiesAreRejected() {
+    assertFalse(BarcodeRasterizer.isSupported(1));
+    assertFalse(BarcodeRasterizer.isSupported(7));
+    assertThrows(IllegalArgumentException.class, () -> BarcodeRasterizer.encode("123456", 1));
+  }
+
+  @Test
+  public void barcodeWiderThanThePaperIsRejected() {
+    assertThrows(IllegalArgumentException.class,
+      () -> BarcodeRasterizer.rasterCommand(SAMPLES[BarcodeRasterizer.CODE39], BarcodeRasterizer.CODE39, 80, 6, 384));
+  }
+}
@@ -0,0 +1,55 @@
+package com.hendrysetiadi.reactnative.sunmiprinter.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class ColumnEncoderTest {
+  private static final int[] MODES = {0, 1, 32, 33};
+
+  private static int[] gradient(int width, int height) {
+    int[] image = new int[width * height];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int gray = ((x * 255) / width + ((x / 8 + y / 8) % 2) * 64) & 0xFF;
+        image[y * width + x] = 0xFF000000 | (gray << 16) | (gray << 8) | gray;
+      }
+    }
+    return image;
+  }
+
+  @Test
+  public void parallelMatchesSequential() {
+    int[][] sizes = {{384, 240}, {576, 1200}, {576, 1201}, {384, 7}};
+    for (int[] size : sizes) {
+      int[] image = gradient(size[0], size[1]);
+      for (int mode : MODES) {
+        byte[] sequential = ColumnEncoder.encode(image, size[0], size[1], mode, false);
+        byte[] parallel = ColumnEncoder.encode(image, size[0], size[1], mode, true);
+        assertArrayEquals(size[0] + "x" + size[1] + " mode " + mode, sequential, parallel);
+      }
+    }
+  }
+
+  @Test
+  public void lastBandIsPaddedWithWhite() {
+    // 2 x 9 black image: the second 8-dot band only holds the last row
+    int[] image = new int[2 * 9];
+    Arrays.fill(image, 0xFF000000);
+    byte[] result = ColumnEncoder.encode(image, 2, 9, 0, false);
+
+    assertEquals(ColumnEncoder.outputSize(2, 9, 0), result.length);
+    assertArrayEquals(new byte[]{
+      0x1B, 0x2A, 0, 2, 0, (byte) 0xFF, (byte) 0xFF,
+      0x1B, 0x2A, 0, 2, 0, (byte) 0x80, (byte) 0x80
+    }, result);
+  }
+
+  @Test
+  public void unsupportedModePrintsLineFeed() {
+    assertArrayEquals(new byte[]{0x0A}, ColumnEncoder.encode(new int[8], 1, 8, 2, false));
+  }
+}
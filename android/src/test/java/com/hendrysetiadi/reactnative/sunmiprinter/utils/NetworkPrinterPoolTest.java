@@ -0,0 +1,337 @@
+package com.hendrysetiadi.reactnative.sunmiprinter.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Network printers are local socket servers standing in for raw TCP (port 9100) printers
+ */
+public class NetworkPrinterPoolTest {
+  private static final long TIMEOUT_MS = 5000;
+
+  private final List<PrinterServer> servers = new ArrayList<>();
+  private NetworkPrinterPool pool;
+
+  /**
+   * Printer accepting connections on the loopback interface
+   */
+  private static final class PrinterServer implements Runnable {
+    final ServerSocket server;
+    // connections accepted while false are never read
+    volatile boolean reading;
+    final ByteArrayOutputStream received = new ByteArrayOutputStream();
+    final List<Socket> sockets = new ArrayList<>();
+    int connections;
+    int readersDone;
+    long firstByteAt;
+
+    /**
+     * @param reading     false = the printer does not read, its socket buffers fill up
+     */
+    PrinterServer(boolean reading) throws IOException {
+      this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+      this.reading = reading;
+      Thread thread = new Thread(this, "PrinterServer");
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    InetSocketAddress address() {
+      return new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort());
+    }
+
+    @Override
+    public void run() {
+      while (!server.isClosed()) {
+        Socket socket;
+        try {
+          socket = server.accept();
+        } catch (IOException e) {
+          return;
+        }
+        synchronized (this) {
+          connections++;
+          sockets.add(socket);
+          notifyAll();
+        }
+        if (reading) {
+          read(socket);
+        }
+      }
+    }
+
+    private void read(Socket socket) {
+      byte[] buffer = new byte[16 * 1024];
+      try (InputStream in = socket.getInputStream()) {
+        int n;
+        while ((n = in.read(buffer)) >= 0) {
+          synchronized (this) {
+            if (firstByteAt == 0 && n > 0) {
+              firstByteAt = System.currentTimeMillis();
+            }
+            received.write(buffer, 0, n);
+            notifyAll();
+          }
+        }
+      } catch (IOException e) {
+        // connection closed
+      }
+      synchronized (this) {
+        readersDone++;
+        notifyAll();
+      }
+    }
+
+    synchronized byte[] awaitBytes(int length) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+      while (received.size() < length && System.currentTimeMillis() < deadline) {
+        wait(100);
+      }
+      return received.toByteArray();
+    }
+
+    synchronized void awaitConnections(int count) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+      while (connections < count && System.currentTimeMillis() < deadline) {
+        wait(100);
+      }
+      assertEquals(count, connections);
+    }
+
+    /**
+     * Close the accepted connections, a socket closed while being read is only closed once the read returns
+     */
+    synchronized void closeConnections() throws IOException, InterruptedException {
+      for (Socket socket : sockets) {
+        socket.close();
+      }
+      sockets.clear();
+      long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+      while (reading && readersDone < connections && System.currentTimeMillis() < deadline) {
+        wait(100);
+      }
+    }
+
+    /**
+     * Reset the accepted connections, unread data is dropped
+     */
+    synchronized void resetConnections() throws IOException {
+      for (Socket socket : sockets) {
+        socket.setSoLinger(true, 0);
+        socket.close();
+      }
+      sockets.clear();
+    }
+
+    void close() throws IOException, InterruptedException {
+      server.close();
+      closeConnections();
+    }
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    pool = new NetworkPrinterPool(64 * 1024, TIMEOUT_MS, 60000);
+  }
+
+  @After
+  public void tearDown() throws IOException, InterruptedException {
+    pool.close();
+    for (PrinterServer server : servers) {
+      server.close();
+    }
+  }
+
+  private PrinterServer server(boolean reading) throws IOException {
+    PrinterServer server = new PrinterServer(reading);
+    servers.add(server);
+    return server;
+  }
+
+  private static byte[] job(int length, int seed) {
+    byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) (i * 31 + seed);
+    }
+    return data;
+  }
+
+  @Test
+  public void jobIsWrittenToEveryPrinter() throws Exception {
+    PrinterServer first = server(true);
+    PrinterServer second = server(true);
+    byte[] data = job(300 * 1024, 1);
+    ByteBuffer[] buffers = {ByteBuffer.wrap(data, 0, 1000), ByteBuffer.wrap(data, 1000, data.length - 1000)};
+
+    List<NetworkPrinterPool.Delivery> deliveries =
+      pool.sendAll(Arrays.asList(first.address(), second.address()), buffers, TIMEOUT_MS);
+    NetworkPrinterPool.awaitAll(deliveries, TIMEOUT_MS);
+
+    assertArrayEquals(data, first.awaitBytes(data.length));
+    assertArrayEquals(data, second.awaitBytes(data.length));
+    // the caller's buffers are not consumed
+    assertEquals(1000, buffers[0].remaining());
+  }
+
+  @Test
+  public void fullPrinterDoesNotHoldUpTheOthers() throws Exception {
+    PrinterServer stuck = server(false);
+    PrinterServer fast = server(true);
+    // more than the socket buffers take, the stuck printer queue stays full
+    pool.send(stuck.address(), job(16 * 1024 * 1024, 2), TIMEOUT_MS);
+    stuck.awaitConnections(1);
+
+    byte[] data = job(4096, 3);
+    long start = System.currentTimeMillis();
+    List<NetworkPrinterPool.Delivery> deliveries = pool.sendAll(Arrays.asList(stuck.address(), fast.address()),
+      new ByteBuffer[]{ByteBuffer.wrap(data)}, 2000);
+
+    assertArrayEquals(data, fast.awaitBytes(data.length));
+    assertTrue("fast printer waited for the stuck one", fast.firstByteAt - start < 1000);
+    assertTrue(deliveries.get(0).isFailed());
+    assertFalse(deliveries.get(1).isFailed());
+  }
+
+  @Test
+  public void deliveriesShareOneDeadline() throws Exception {
+    PrinterServer first = server(false);
+    PrinterServer second = server(false);
+    byte[] data = job(16 * 1024 * 1024, 4);
+    List<NetworkPrinterPool.Delivery> deliveries = pool.sendAll(Arrays.asList(first.address(), second.address()),
+      new ByteBuffer[]{ByteBuffer.wrap(data)}, TIMEOUT_MS);
+
+    long start = System.currentTimeMillis();
+    IOException error = assertThrows(IOException.class, () -> NetworkPrinterPool.awaitAll(deliveries, 500));
+    long elapsed = System.currentTimeMillis() - start;
+
+    assertTrue("waited " + elapsed + " ms", elapsed < 900);
+    assertTrue(error.getMessage(), error.getMessage().contains(String.valueOf(first.server.getLocalPort())));
+    assertTrue(error.getMessage(), error.getMessage().contains(String.valueOf(second.server.getLocalPort())));
+  }
+
+  @Test
+  public void unreachablePrinterFailsItsDelivery() throws Exception {
+    PrinterServer reachable = server(true);
+    PrinterServer gone = server(true);
+    InetSocketAddress goneAddress = gone.address();
+    gone.close();
+
+    byte[] data = job(1024, 5);
+    List<NetworkPrinterPool.Delivery> deliveries = pool.sendAll(Arrays.asList(goneAddress, reachable.address()),
+      new ByteBuffer[]{ByteBuffer.wrap(data)}, TIMEOUT_MS);
+
+    assertThrows(IOException.class, () -> NetworkPrinterPool.awaitAll(deliveries, TIMEOUT_MS));
+    assertTrue(deliveries.get(0).isFailed());
+    assertArrayEquals(data, reachable.awaitBytes(data.length));
+  }
+
+  @Test
+  public void closedIdleConnectionIsReplaced() throws Exception {
+    PrinterServer printer = server(true);
+    byte[] first = job(1024, 7);
+    pool.send(printer.address(), first, TIMEOUT_MS).await(TIMEOUT_MS);
+    assertArrayEquals(first, printer.awaitBytes(first.length));
+
+    // the printer drops the idle connection, the pool notices it before the next job
+    printer.closeConnections();
+    Thread.sleep(200);
+    byte[] second = job(2048, 8);
+    pool.send(printer.address(), second, TIMEOUT_MS).await(TIMEOUT_MS);
+
+    printer.awaitConnections(2);
+    byte[] received = printer.awaitBytes(first.length + second.length);
+    assertArrayEquals(second, Arrays.copyOfRange(received, first.length, received.length));
+  }
+
+  @Test
+  public void jobQueuedOnAResetConnectionIsSentAgain() throws Exception {
+    PrinterServer printer = server(true);
+    byte[] first = job(1024, 9);
+    pool.send(printer.address(), first, TIMEOUT_MS).await(TIMEOUT_MS);
+    printer.awaitBytes(first.length);
+
+    // queued right away, before the pool may have seen the close
+    printer.closeConnections();
+    byte[] second = job(64 * 1024, 10);
+    pool.send(printer.address(), second, TIMEOUT_MS).await(TIMEOUT_MS);
+
+    byte[] received = printer.awaitBytes(first.length + second.length);
+    assertArrayEquals(second, Arrays.copyOfRange(received, first.length, received.length));
+  }
+
+  @Test
+  public void resetDuringTheFirstPartFailsTheRestOfTheJob() throws Exception {
+    pool.close();
+    pool = new NetworkPrinterPool(64 * 1024 * 1024, TIMEOUT_MS, 60000);
+    PrinterServer printer = server(false);
+    NetworkTransport transport =
+      new NetworkTransport(pool, Collections.singletonList(printer.address()), 576, TIMEOUT_MS);
+    // the first part is more than the socket buffers take, the second one is queued behind it
+    transport.write(job(32 * 1024 * 1024, 11));
+    transport.write(job(128 * 1024, 12));
+    printer.awaitConnections(1);
+    Thread.sleep(200);
+
+    // a new connection for the second part would be read
+    printer.reading = true;
+    printer.resetConnections();
+
+    assertThrows(IOException.class, transport::flush);
+    Thread.sleep(200);
+    assertEquals(1, printer.connections);
+    assertEquals(0, printer.awaitBytes(0).length);
+  }
+
+  @Test
+  public void networkTransportFansTheJobOut() throws Exception {
+    PrinterServer first = server(true);
+    PrinterServer second = server(true);
+    byte[] data = job(200 * 1024, 6);
+
+    try (NetworkTransport transport =
+           new NetworkTransport(pool, Arrays.asList(first.address(), second.address()), 576, TIMEOUT_MS)) {
+      for (int offset = 0; offset < data.length; offset += 10000) {
+        transport.write(data, offset, Math.min(10000, data.length - offset));
+      }
+      transport.flush();
+    }
+    assertArrayEquals(data, first.awaitBytes(data.length));
+    assertArrayEquals(data, second.awaitBytes(data.length));
+  }
+
+  @Test
+  public void sendAfterCloseFails() throws Exception {
+    PrinterServer printer = server(true);
+    assertFalse(pool.isClosed());
+    pool.close();
+    assertTrue(pool.isClosed());
+    assertThrows(IOException.class, () -> pool.send(printer.address(), new byte[1], TIMEOUT_MS));
+  }
+
+  @Test
+  public void parseAddress() {
+    assertEquals(new InetSocketAddress("10.0.0.5", 9100), NetworkPrinterPool.parseAddress("10.0.0.5"));
+    assertEquals(new InetSocketAddress("10.0.0.5", 9101), NetworkPrinterPool.parseAddress("tcp://10.0.0.5:9101"));
+    assertThrows(IllegalArgumentException.class, () -> NetworkPrinterPool.parseAddress("tcp://"));
+  }
+}
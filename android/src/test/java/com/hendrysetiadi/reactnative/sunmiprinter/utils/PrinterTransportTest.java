@@ -0,0 +1,104 @@
+package com.hendrysetiadi.reactnative.sunmiprinter.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Golden outputs of a known document written through the raw transports, the same way the module does it:
+ * pooled writer, one write per job, flush at the end of the job
+ */
+public class PrinterTransportTest {
+  private static final int[] WEIGHTS = {2, 1, 1};
+  private static final int[] ALIGNMENTS = {0, 1, 2};
+
+  private static final byte[] GOLDEN = HexCodec.decode(
+    "1B40 1B6101 1D2111 53544F5245 0A 1D2100 1B6100"
+      // Tea             |   2    |    7.00
+      + "54656120202020202020202020202020 2020203220202020 20202020372E3030 0A"
+      // Café × 2        |   1    |      €3     (é, × and € are double byte GB18030 characters)
+      + "436166A8A620A1C12032202020202020 2020203120202020 2020202020A2E333 0A"
+      + "0A0A0A 1D5601");
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static void printDocument(PrinterTransport transport) throws IOException {
+    // the rows are printed after characterSize(1, 1)
+    int lineChars = TextLayout.columnsPerLine(transport.getPaperDots(), 1);
+    EscPosWriter writer = EscPosWriter.obtain();
+    try {
+      writer.init().align(1).characterSize(2, 2).text("STORE").newLine().characterSize(1, 1).align(0);
+      writer.tableRow(new String[]{"Tea", "2", "7.00"}, WEIGHTS, ALIGNMENTS, lineChars);
+      writer.tableRow(new String[]{"Café × 2", "1", "€3"}, WEIGHTS, ALIGNMENTS, lineChars);
+      writer.feed(3).cut();
+      transport.write(writer.buffer(), 0, writer.size());
+    } finally {
+      writer.recycle();
+    }
+    transport.flush();
+  }
+
+  @Test
+  public void memoryTransportRecordsTheDocument() throws IOException {
+    RecordingTransport transport = new RecordingTransport(384);
+    printDocument(transport);
+
+    assertArrayEquals(GOLDEN, transport.toByteArray());
+    assertEquals(GOLDEN.length, transport.size());
+    assertEquals(1, transport.getWriteCount());
+  }
+
+  @Test
+  public void memoryTransportRecordsEveryJobUntilReset() throws IOException {
+    RecordingTransport transport = new RecordingTransport(384);
+    printDocument(transport);
+    printDocument(transport);
+    assertEquals(2 * GOLDEN.length, transport.size());
+    assertEquals(2, transport.getWriteCount());
+
+    // the pooled writer of the previous jobs must not leak into the next one
+    transport.reset();
+    printDocument(transport);
+    assertArrayEquals(GOLDEN, transport.toByteArray());
+    assertEquals(1, transport.getWriteCount());
+  }
+
+  @Test
+  public void fileTransportWritesTheDocument() throws IOException {
+    File file = folder.newFile("receipt.bin");
+    try (StreamTransport transport = StreamTransport.open(file, 384)) {
+      printDocument(transport);
+    }
+    assertArrayEquals(GOLDEN, Files.readAllBytes(file.toPath()));
+  }
+
+  @Test
+  public void fileTransportReplacesAnExistingFile() throws IOException {
+    File file = folder.newFile("receipt.bin");
+    Files.write(file.toPath(), new byte[100000]);
+    try (StreamTransport transport = StreamTransport.open(file, 384)) {
+      printDocument(transport);
+    }
+    assertArrayEquals(GOLDEN, Files.readAllBytes(file.toPath()));
+  }
+
+  @Test
+  public void streamTransportPushesBufferedDataOnFlush() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    StreamTransport transport = new StreamTransport(out, 384);
+    transport.write(GOLDEN, 0, 10);
+    transport.write(GOLDEN, 10, GOLDEN.length - 10);
+    transport.flush();
+    assertArrayEquals(GOLDEN, out.toByteArray());
+    transport.close();
+  }
+}
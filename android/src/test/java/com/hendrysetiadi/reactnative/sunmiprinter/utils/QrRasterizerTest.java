@@ -0,0 +1,41 @@
+package com.hendrysetiadi.reactnative.sunmiprinter.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Test;
+
+public class QrRasterizerTest {
+  private static final String[] TWO_CODES = {"https://example.com/a", "https://example.com/b"};
+
+  @Test
+  public void codesFittingThePaperAreRasterized() {
+    byte[] raster = QrRasterizer.rasterCommand(TWO_CODES, 160, 40, 384);
+
+    assertNotNull(raster);
+    assertEquals(ESCUtil.GS, raster[0]);
+    int bytesPerRow = (raster[4] & 0xFF) | (raster[5] & 0xFF) << 8;
+    int height = (raster[6] & 0xFF) | (raster[7] & 0xFF) << 8;
+    assertEquals((160 * 2 + 40 + 7) / 8, bytesPerRow);
+    assertEquals(160, height);
+    assertEquals(8 + bytesPerRow * height, raster.length);
+  }
+
+  @Test
+  public void codesWiderThanThePaperAreRejected() {
+    assertThrows(IllegalArgumentException.class, () -> QrRasterizer.rasterCommand(TWO_CODES, 200, 40, 384));
+    assertThrows(IllegalArgumentException.class,
+      () -> QrRasterizer.rasterCommand(new String[]{"a", "b", "c"}, 160, 0, 384));
+  }
+
+  @Test
+  public void sizeOutsideTheRasterHeaderIsRejected() {
+    assertThrows(IllegalArgumentException.class,
+      () -> QrRasterizer.rasterCommand(new String[]{"a"}, 0x10000, 0, Integer.MAX_VALUE));
+    assertThrows(IllegalArgumentException.class,
+      () -> QrRasterizer.rasterCommand(new String[]{"a"}, 0, 0, 384));
+    assertThrows(IllegalArgumentException.class,
+      () -> QrRasterizer.rasterCommand(TWO_CODES, 100, -1, 384));
+  }
+}
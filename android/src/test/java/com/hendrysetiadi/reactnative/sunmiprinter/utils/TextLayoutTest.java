@@ -0,0 +1,87 @@
+package com.hendrysetiadi.reactnative.sunmiprinter.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.util.List;
+
+public class TextLayoutTest {
+  private static final Charset GB18030 = Charset.forName("GB18030");
+
+  private final TextLayout layout = new TextLayout();
+
+  @Test
+  public void asciiTakesOneColumn() {
+    assertEquals(1, TextLayout.charWidth('A'));
+    assertEquals(1, TextLayout.charWidth(' '));
+    assertEquals(11, layout.width("Hello World"));
+  }
+
+  @Test
+  public void doubleByteSymbolsTakeTwoColumns() {
+    String[] symbols = {"×", "°", "§", "α", "Ω", "Ж", "д", "─", "│", "€", "\u00e9"};
+    for (String symbol : symbols) {
+      assertEquals(symbol, 2, symbol.getBytes(GB18030).length);
+      assertEquals(symbol, 2, TextLayout.charWidth(symbol.codePointAt(0)));
+    }
+    assertEquals(9, layout.width("2 × 3 €"));
+    assertEquals(5, layout.width("25°C"));
+  }
+
+  @Test
+  public void cjkAndEmojiTakeTwoColumns() {
+    assertEquals(2, TextLayout.charWidth('中'));
+    assertEquals(2, TextLayout.charWidth("😀".codePointAt(0)));
+    assertEquals(4, layout.width("咖啡"));
+  }
+
+  @Test
+  public void controlAndCombiningCharactersTakeNoColumn() {
+    assertEquals(0, TextLayout.charWidth('\t'));
+    assertEquals(0, TextLayout.charWidth(0x0301));
+    assertEquals(0, TextLayout.charWidth(0x200B));
+    // e + combining acute accent
+    assertEquals(1, layout.width("e\u0301"));
+  }
+
+  @Test
+  public void widthIsStableWhenCached() {
+    String text = "Ω × 2";
+    int first = layout.width(text);
+    assertEquals(first, layout.width(text));
+    assertEquals(first, TextLayout.getDefault().width(text));
+  }
+
+  @Test
+  public void tableRowsKeepTheirWidth() {
+    String[][] rows = {
+      {"Item", "Qty", "Total"},
+      {"Coffee", "2 ×", "€ 7.00"},
+      {"Tea 25°C", "1", "€ 3.50"},
+      {"Борщ §3", "1", "€ 9.90"},
+      {"咖啡 ─ large", "10", "€ 40.00"},
+    };
+    int[] weights = {3, 1, 2};
+    int[] alignments = {TextLayout.ALIGN_LEFT, TextLayout.ALIGN_CENTER, TextLayout.ALIGN_RIGHT};
+    int lineColumns = TextLayout.columnsPerLine(384, 1);
+
+    for (String[] row : rows) {
+      List<String> lines = layout.layoutRow(row, weights, alignments, lineColumns);
+      for (String line : lines) {
+        assertEquals(line, lineColumns, layout.width(line));
+        // single byte characters print 1 column wide and double byte characters 2 columns wide
+        assertEquals(line, lineColumns, line.getBytes(GB18030).length);
+      }
+    }
+  }
+
+  @Test
+  public void wrapSplitsWideSymbols() {
+    List<String> lines = layout.wrap("××××××", 5);
+    assertEquals(3, lines.size());
+    assertEquals("××", lines.get(0));
+    assertEquals("××", lines.get(2));
+  }
+}
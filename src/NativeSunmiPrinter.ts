@@ -2,12 +2,15 @@ import type { TurboModule } from 'react-native';
 import { TurboModuleRegistry } from 'react-native';
 
 export interface Spec extends TurboModule {
+  getConnectionState(): Promise<string>;
+
   getPrinterSerialNo(): Promise<string>;
   getPrinterModel(): Promise<string>;
   getPrinterVersion(): Promise<string>;
   getPrinterPaper(): Promise<string>;
 
   initPrinter(): Promise<null>;
+  setAwaitPrintResult(enabled: boolean, timeoutMs: number): Promise<null>;
 
   printLineWrap(n: number): Promise<null>;
   feedPaper(): Promise<null>;
@@ -27,6 +30,19 @@ export interface Spec extends TurboModule {
     alignmentArray: number[]
   ): Promise<null>;
 
+  printColumnsText(
+    contentArray: string[],
+    widthArray: number[],
+    alignmentArray: number[],
+    fontSize: number
+  ): Promise<null>;
+
+  printTable(
+    rows: string[][],
+    widthArray: number[],
+    alignmentArray: number[]
+  ): Promise<null>;
+
   printBarcode(
     data: string,
     symbology: number,
@@ -34,20 +50,87 @@ export interface Spec extends TurboModule {
     width: number,
     textPosition: number
   ): Promise<null>;
+  printBarcodeRaster(
+    data: string,
+    symbology: number,
+    height: number,
+    width: number,
+    textPosition: number
+  ): Promise<null>;
   printQrCode(
     data: string,
     moduleSize: number,
     errorLevel: number
   ): Promise<null>;
+  printQrCodes(dataArray: string[], size: number, space: number): Promise<null>;
 
-  printBitmap(data: string, width: number, height: number): Promise<null>;
+  printBitmap(
+    data: string,
+    width: number,
+    height: number,
+    ditherMode: number
+  ): Promise<null>;
+  printBitmapFile(
+    uri: string,
+    width: number,
+    height: number,
+    ditherMode: number
+  ): Promise<null>;
+  streamBitmapFile(
+    uri: string,
+    width: number,
+    height: number,
+    ditherMode: number,
+    bandHeight: number
+  ): Promise<null>;
+  registerImage(
+    id: string,
+    data: string,
+    width: number,
+    height: number,
+    ditherMode: number
+  ): Promise<null>;
+  registerImageFile(
+    id: string,
+    uri: string,
+    width: number,
+    height: number,
+    ditherMode: number
+  ): Promise<null>;
+  unregisterImage(id: string): Promise<null>;
+  printRegisteredImage(id: string): Promise<null>;
+  getImageCacheStats(): Promise<Object>;
+  clearImageCache(): Promise<null>;
   openCashBox(): Promise<null>;
 
   enterPrintBuffer(clean: boolean): Promise<null>;
   commitPrinterBuffer(): Promise<null>;
   exitPrinterBuffer(commit: boolean): Promise<null>;
 
+  printDocument(operations: Object[]): Promise<null>;
+  printRawDocument(operations: Object[]): Promise<null>;
+  sendRawHex(hex: string): Promise<null>;
+  sendRawBytes(data: string): Promise<null>;
+  setRawTransport(target: string, paperWidth: number): Promise<null>;
+  printToNetwork(
+    addresses: string[],
+    operations: Object[],
+    paperWidth: number
+  ): Promise<null>;
+  getRecordedRawData(): Promise<string>;
+  submitJob(operations: Object[], priority: number): Promise<number>;
+  getPendingJobCount(): Promise<number>;
+  registerTemplate(id: string, operations: Object[]): Promise<string[]>;
+  unregisterTemplate(id: string): Promise<null>;
+  printTemplate(id: string, values: Object): Promise<null>;
+
   showPrinterStatus(): Promise<null>;
+  getPrinterStatus(): Promise<Object>;
+  startStatusMonitor(intervalMs: number): Promise<null>;
+  stopStatusMonitor(): Promise<null>;
+
+  addListener(eventName: string): void;
+  removeListeners(count: number): void;
 }
 
 export default TurboModuleRegistry.getEnforcing<Spec>('SunmiPrinter');
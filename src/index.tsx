@@ -1,5 +1,86 @@
+import { NativeEventEmitter, type EmitterSubscription } from 'react-native';
 import SunmiPrinter from './NativeSunmiPrinter';
 
+const eventEmitter = new NativeEventEmitter(SunmiPrinter);
+
+export type PrintOperation =
+  | { type: 'init' }
+  | { type: 'lineWrap'; lines: number }
+  | { type: 'feedPaper' }
+  | { type: 'alignment'; alignment: number }
+  | { type: 'fontSize'; fontSize: number }
+  | {
+      type: 'text';
+      content: string;
+      fontSize?: number;
+      isBold?: boolean;
+      isUnderline?: boolean;
+    }
+  | {
+      type: 'table';
+      contentArray: string[];
+      widthArray: number[];
+      alignmentArray: number[];
+    }
+  | {
+      type: 'barcode';
+      data: string;
+      symbology: number;
+      height: number;
+      width: number;
+      textPosition: number;
+    }
+  | { type: 'qrCode'; data: string; moduleSize: number; errorLevel: number }
+  | {
+      type: 'bitmap';
+      data: string;
+      width: number;
+      height: number;
+      ditherMode?: number;
+    }
+  | { type: 'registeredImage'; id: string }
+  | { type: 'openCashBox' };
+
+export type ConnectionState = 'connected' | 'connecting' | 'disconnected';
+
+export type PrinterStatus = {
+  code: number;
+  message: string;
+};
+
+export type TemplateValues = { [key: string]: string | number };
+
+export type PrintJobResult = {
+  jobId: number;
+  success: boolean;
+  message?: string;
+};
+
+export type ImageCacheStats = {
+  hits: number;
+  misses: number;
+  entries: number;
+  bytes: number;
+  registered: number;
+};
+
+/**
+ * Get the state of the connection to the printer service
+ * Calls made while connecting are queued and run as soon as the service is connected
+ */
+export async function getConnectionState(): Promise<ConnectionState> {
+  return SunmiPrinter.getConnectionState() as Promise<ConnectionState>;
+}
+/**
+ * Listen to the connection state changes, the service is bound again automatically when it dies
+ * @param listener      Called with the new connection state
+ */
+export function addConnectionListener(
+  listener: (event: { state: ConnectionState }) => void
+): EmitterSubscription {
+  return eventEmitter.addListener('onPrinterConnectionChange', listener);
+}
+
 export async function getPrinterSerialNo(): Promise<string> {
   return SunmiPrinter.getPrinterSerialNo();
 }
@@ -16,6 +97,18 @@ export async function getPrinterPaper(): Promise<string> {
 export async function initPrinter(): Promise<null> {
   return SunmiPrinter.initPrinter();
 }
+/**
+ * Wait for the printer to report the completion of each call (or committed buffer) before resolving its promise
+ * When disabled (default) the promise is resolved as soon as the call is handed to the printer service
+ * @param enabled       Enable waiting for the print result
+ * @param timeoutMs     Maximum time to wait for the printer before rejecting (default 30000)
+ */
+export async function setAwaitPrintResult(
+  enabled: boolean,
+  timeoutMs: number = 30000
+): Promise<null> {
+  return SunmiPrinter.setAwaitPrintResult(enabled, timeoutMs);
+}
 
 /**
  * Print Paper Feed after finishing the Previous printing content
@@ -90,6 +183,45 @@ export async function printTextTable(
   return SunmiPrinter.printTextTable(contentArray, widthArray, alignmentArray);
 }
 
+/**
+ * Print Text in a form of Table, laid out natively and sent as raw ESC/POS
+ * Columns are wrapped and aligned by display width (characters printed double width, e.g. CJK, × ° € or emoji, take two columns)
+ * @param contentArray    Array of Text for each Column
+ * @param widthArray      Array of Width ratio for each Column
+ * @param alignmentArray  Array of Alignment for each Column (0 = Left, 1 = Center, 2 = Right)
+ * @param fontSize        Font size (default 24)
+ * @returns
+ */
+export async function printColumnsText(
+  contentArray: string[],
+  widthArray: number[],
+  alignmentArray: number[],
+  fontSize: number = 24
+): Promise<null> {
+  return SunmiPrinter.printColumnsText(
+    contentArray,
+    widthArray,
+    alignmentArray,
+    fontSize
+  );
+}
+
+/**
+ * Print many rows of a Table in one call, the column Width and Alignment are given once
+ * All rows are laid out natively and sent as one raw ESC/POS block
+ * @param rows            Array of rows, each an Array of Text for each Column
+ * @param widthArray      Array of Width ratio for each Column
+ * @param alignmentArray  Array of Alignment for each Column (0 = Left, 1 = Center, 2 = Right)
+ * @returns
+ */
+export async function printTable(
+  rows: string[][],
+  widthArray: number[],
+  alignmentArray: number[]
+): Promise<null> {
+  return SunmiPrinter.printTable(rows, widthArray, alignmentArray);
+}
+
 /**
  * Print One-Dimensional Barcode
  * @param data          Barcode data
@@ -126,6 +258,32 @@ export async function printBarcode(
     textPosition
   );
 }
+
+/**
+ * Print One-Dimensional Barcode rendered on the device and printed as a raster bitmap
+ * For symbologies and widths the printer firmware does not render well, e.g. GS1-128 or 1 dot wide bars
+ * @param data          Barcode data (GS1-128: element string, variable length fields ended by '\x1d')
+ * @param symbology     Barcode Type (same as printBarcode, plus 9 = GS1-128; UPC-E and CODE93 are not supported)
+ * @param height        Barcode Height in dots (default 162)
+ * @param width         Barcode Width, width of the narrowest bar in dots (1 - 6, default 2)
+ * @param textPosition  Barcode Text Position (same as printBarcode, default 0)
+ * @returns
+ */
+export async function printBarcodeRaster(
+  data: string,
+  symbology: number,
+  height: number = 162,
+  width: number = 2,
+  textPosition: number = 0
+): Promise<null> {
+  return SunmiPrinter.printBarcodeRaster(
+    data,
+    symbology,
+    height,
+    width,
+    textPosition
+  );
+}
 /**
  * Print QR Code (Two-Dimensional Barcode)
  * @param data          QR Code content data
@@ -144,18 +302,150 @@ export async function printQrCode(
   return SunmiPrinter.printQrCode(data, moduleSize, errorLevel);
 }
 
+/**
+ * Print QR Codes side by side, rendered on the device and printed as a raster bitmap
+ * Repeated data (e.g. Wi-Fi or review link) is encoded only once
+ * @param dataArray     Array of QR Code data, one code for each item
+ * @param size          Width and height of each code in dots (default 160)
+ * @param space         Gap between two codes in dots (default 40)
+ * @returns
+ */
+export async function printQrCodes(
+  dataArray: string[],
+  size: number = 160,
+  space: number = 40
+): Promise<null> {
+  return SunmiPrinter.printQrCodes(dataArray, size, space);
+}
+
+/**
+ * Dither Mode used to convert bitmaps to black and white
+ */
+export const DitherMode = {
+  /** Hard threshold */
+  NONE: 0,
+  /** Floyd-Steinberg error diffusion */
+  FLOYD_STEINBERG: 1,
+  /** Atkinson error diffusion, more contrast than Floyd-Steinberg */
+  ATKINSON: 2,
+  /** Ordered 8x8 Bayer dithering, fastest */
+  BAYER: 3,
+} as const;
+
 /**
  * Print Bitmap from Base-64 data
- * @param data      Base-64 bitmap data (Maximum width of 384 pixels)
+ * @param data          Base-64 bitmap data (Maximum width of 384 pixels)
  * @param width
  * @param height
+ * @param ditherMode    Dither Mode (default DitherMode.NONE)
  */
 export async function printBitmap(
   data: string,
   width: number,
-  height: number
+  height: number,
+  ditherMode: number = DitherMode.NONE
+): Promise<null> {
+  return SunmiPrinter.printBitmap(data, width, height, ditherMode);
+}
+/**
+ * Print Bitmap from a local image file, the image is read by the native side without going through the bridge
+ * @param uri           Image file path, file:// or content:// URI
+ * @param width
+ * @param height
+ * @param ditherMode    Dither Mode (default DitherMode.NONE)
+ */
+export async function printBitmapFile(
+  uri: string,
+  width: number,
+  height: number,
+  ditherMode: number = DitherMode.NONE
+): Promise<null> {
+  return SunmiPrinter.printBitmapFile(uri, width, height, ditherMode);
+}
+/**
+ * Print a tall image from a local image file as a stream of fixed height bands
+ * The next bands are converted while the previous ones are printed, so memory use stays flat and printing starts sooner
+ * @param uri           Image file path, file:// or content:// URI
+ * @param width
+ * @param height        Maximum height, the image is only scaled down
+ * @param ditherMode    Dither Mode (default DitherMode.NONE)
+ * @param bandHeight    Number of rows per band (default 256)
+ */
+export async function streamBitmapFile(
+  uri: string,
+  width: number,
+  height: number,
+  ditherMode: number = DitherMode.NONE,
+  bandHeight: number = 256
+): Promise<null> {
+  return SunmiPrinter.streamBitmapFile(
+    uri,
+    width,
+    height,
+    ditherMode,
+    bandHeight
+  );
+}
+/**
+ * Register an Image to be printed later with printRegisteredImage()
+ * The image is decoded and converted once and kept in memory until unregistered
+ * @param id            Image identifier
+ * @param data          Base-64 bitmap data
+ * @param width
+ * @param height
+ * @param ditherMode    Dither Mode (default DitherMode.NONE)
+ */
+export async function registerImage(
+  id: string,
+  data: string,
+  width: number,
+  height: number,
+  ditherMode: number = DitherMode.NONE
+): Promise<null> {
+  return SunmiPrinter.registerImage(id, data, width, height, ditherMode);
+}
+/**
+ * Register an Image from a local image file to be printed later with printRegisteredImage()
+ * @param id            Image identifier
+ * @param uri           Image file path, file:// or content:// URI
+ * @param width
+ * @param height
+ * @param ditherMode    Dither Mode (default DitherMode.NONE)
+ */
+export async function registerImageFile(
+  id: string,
+  uri: string,
+  width: number,
+  height: number,
+  ditherMode: number = DitherMode.NONE
 ): Promise<null> {
-  return SunmiPrinter.printBitmap(data, width, height);
+  return SunmiPrinter.registerImageFile(id, uri, width, height, ditherMode);
+}
+/**
+ * Remove an Image registered with registerImage()
+ * @param id            Image identifier
+ */
+export async function unregisterImage(id: string): Promise<null> {
+  return SunmiPrinter.unregisterImage(id);
+}
+/**
+ * Print an Image registered with registerImage()
+ * @param id            Image identifier
+ */
+export async function printRegisteredImage(id: string): Promise<null> {
+  return SunmiPrinter.printRegisteredImage(id);
+}
+/**
+ * Get the hit / miss counters and size of the converted image cache
+ */
+export async function getImageCacheStats(): Promise<ImageCacheStats> {
+  return SunmiPrinter.getImageCacheStats() as Promise<ImageCacheStats>;
+}
+/**
+ * Clear the converted image cache (registered images are kept)
+ */
+export async function clearImageCache(): Promise<null> {
+  return SunmiPrinter.clearImageCache();
 }
 /**
  * Open Cash Box
@@ -186,22 +476,213 @@ export async function exitPrinterBuffer(commit: boolean): Promise<null> {
   return SunmiPrinter.exitPrinterBuffer(commit);
 }
 
+/**
+ * Print a whole Document in a single native call
+ * All operations are printed inside the printer buffer and committed at once
+ * While a buffer opened with enterPrintBuffer() is open, the document is added to it and printed by its commit
+ * @param operations    Array of print operations
+ */
+export async function printDocument(
+  operations: PrintOperation[]
+): Promise<null> {
+  return SunmiPrinter.printDocument(operations);
+}
+/**
+ * Print a whole Document as raw ESC/POS
+ * All operations are compiled natively into a single byte stream and sent to the printer at once
+ * Font sizes are mapped to character size multipliers of the default 24px font
+ * @param operations    Array of print operations
+ */
+export async function printRawDocument(
+  operations: PrintOperation[]
+): Promise<null> {
+  return SunmiPrinter.printRawDocument(operations);
+}
+
+/**
+ * Send prebuilt raw ESC/POS commands given as a hex string, whitespace is ignored
+ * @param hex           Hex string of the commands (e.g. '1B 40 0A')
+ */
+export async function sendRawHex(hex: string): Promise<null> {
+  return SunmiPrinter.sendRawHex(hex);
+}
+
+/**
+ * Send prebuilt raw ESC/POS commands given as Base-64 data
+ * @param data          Base-64 data of the commands
+ */
+export async function sendRawBytes(data: string): Promise<null> {
+  return SunmiPrinter.sendRawBytes(data);
+}
+
+/**
+ * Redirect the raw command jobs (raw documents, templates, tables, images, raster codes, raw data)
+ * away from the printer, to test and measure the native pipeline or capture golden outputs
+ * @param target        'sunmi' = printer service (default), 'memory' = recorded in memory,
+ *                      a file path / file:// URI, or network printers tcp://host:port (comma separated for fan-out)
+ * @param paperWidth    Paper width in mm used for the layout (58 or 80, default 58)
+ */
+export async function setRawTransport(
+  target: string,
+  paperWidth: number = 58
+): Promise<null> {
+  return SunmiPrinter.setRawTransport(target, paperWidth);
+}
+
+/**
+ * Print a Document on network ESC/POS printers (raw TCP, port 9100 by default), e.g. kitchen printers
+ * The document is compiled once and sent to every printer concurrently, on a queue separate from the built-in printer
+ * @param addresses     Array of printer addresses ('host', 'host:port' or 'tcp://host:port')
+ * @param operations    Array of print operations (same as printRawDocument)
+ * @param paperWidth    Paper width of the printers in mm (58 or 80, default 80)
+ */
+export async function printToNetwork(
+  addresses: string[],
+  operations: PrintOperation[],
+  paperWidth: number = 80
+): Promise<null> {
+  return SunmiPrinter.printToNetwork(addresses, operations, paperWidth);
+}
+
+/**
+ * Get the raw commands recorded by the 'memory' raw transport, and clear the recording
+ * @returns             Base-64 data of the commands
+ */
+export async function getRecordedRawData(): Promise<string> {
+  return SunmiPrinter.getRecordedRawData();
+}
+
+/**
+ * Print Job Priority, higher priorities are printed first
+ */
+export const JobPriority = {
+  LOW: 0,
+  NORMAL: 1,
+  HIGH: 2,
+} as const;
+
+/**
+ * Submit a whole Document as a print job and return immediately with the job identifier
+ * Jobs are printed one at a time in FIFO order within the same priority, use addPrintJobListener() to know when a job is done
+ * @param operations    Array of print operations
+ * @param priority      Job Priority (default JobPriority.NORMAL)
+ */
+export async function submitJob(
+  operations: PrintOperation[],
+  priority: number = JobPriority.NORMAL
+): Promise<number> {
+  return SunmiPrinter.submitJob(operations, priority);
+}
+/**
+ * Get the number of calls and jobs waiting in the job queue
+ */
+export async function getPendingJobCount(): Promise<number> {
+  return SunmiPrinter.getPendingJobCount();
+}
+/**
+ * Register a receipt Template to be printed later with printTemplate()
+ * Texts, table columns, barcode and QR code data can hold {{key}} placeholders,
+ * everything else is compiled into raw ESC/POS once
+ * @param id            Template identifier
+ * @param operations    Array of print operations (same as printRawDocument)
+ * @returns             Placeholder keys of the template
+ */
+export async function registerTemplate(
+  id: string,
+  operations: PrintOperation[]
+): Promise<string[]> {
+  return SunmiPrinter.registerTemplate(id, operations);
+}
+/**
+ * Remove a Template registered with registerTemplate()
+ * @param id            Template identifier
+ */
+export async function unregisterTemplate(id: string): Promise<null> {
+  return SunmiPrinter.unregisterTemplate(id);
+}
+/**
+ * Print a Template registered with registerTemplate(), only the values are sent to the native side
+ * @param id            Template identifier
+ * @param values        Value of every placeholder key
+ */
+export async function printTemplate(
+  id: string,
+  values: TemplateValues
+): Promise<null> {
+  return SunmiPrinter.printTemplate(id, values);
+}
+/**
+ * Listen to the completion of the jobs submitted with submitJob()
+ * @param listener      Called with the job identifier and its result
+ */
+export function addPrintJobListener(
+  listener: (result: PrintJobResult) => void
+): EmitterSubscription {
+  return eventEmitter.addListener('onPrintJobComplete', listener);
+}
+
 /**
  * Show the status of the printer
  */
 export async function showPrinterStatus(): Promise<null> {
   return SunmiPrinter.showPrinterStatus();
 }
+/**
+ * Get the status of the printer, read right away without waiting for the queued print jobs
+ * Status code:
+ *    1 = Printer is running
+ *    2 = Printer found but still initializing
+ *    3 = Printer hardware interface is abnormal
+ *    4 = Printer is out of paper
+ *    5 = Printer is overheating
+ *    6 = Printer's cover is not closed
+ *    7 = Printer's cutter is abnormal
+ *    8 = Printer's cutter is normal
+ *    9 = Black Mark Paper is not found
+ *    505 = Printer does not exist
+ */
+export async function getPrinterStatus(): Promise<PrinterStatus> {
+  return SunmiPrinter.getPrinterStatus() as Promise<PrinterStatus>;
+}
+/**
+ * Start polling the printer status in the background, only the changes are sent to addPrinterStatusListener()
+ * Code -1 is sent while the printer service is not connected
+ * @param intervalMs    Polling interval (default 1000)
+ */
+export async function startStatusMonitor(
+  intervalMs: number = 1000
+): Promise<null> {
+  return SunmiPrinter.startStatusMonitor(intervalMs);
+}
+/**
+ * Stop polling the printer status
+ */
+export async function stopStatusMonitor(): Promise<null> {
+  return SunmiPrinter.stopStatusMonitor();
+}
+/**
+ * Listen to the printer status changes found by the status monitor
+ * @param listener      Called with the new printer status
+ */
+export function addPrinterStatusListener(
+  listener: (status: PrinterStatus) => void
+): EmitterSubscription {
+  return eventEmitter.addListener('onPrinterStatusChange', listener);
+}
 
 //
 
 export default {
+  getConnectionState,
+  addConnectionListener,
+
   getPrinterSerialNo,
   getPrinterModel,
   getPrinterVersion,
   getPrinterPaper,
 
   initPrinter,
+  setAwaitPrintResult,
 
   printLineWrap,
   feedPaper,
@@ -211,15 +692,46 @@ export default {
   printText,
   printTextWithOption,
   printTextTable,
+  printColumnsText,
+  printTable,
 
   printBarcode,
+  printBarcodeRaster,
   printQrCode,
+  printQrCodes,
 
   printBitmap,
+  printBitmapFile,
+  streamBitmapFile,
+  registerImage,
+  registerImageFile,
+  unregisterImage,
+  printRegisteredImage,
+  getImageCacheStats,
+  clearImageCache,
   openCashBox,
 
   enterPrintBuffer,
   commitPrinterBuffer,
   exitPrinterBuffer,
+
+  printDocument,
+  printRawDocument,
+  sendRawHex,
+  sendRawBytes,
+  setRawTransport,
+  printToNetwork,
+  getRecordedRawData,
+  submitJob,
+  getPendingJobCount,
+  registerTemplate,
+  unregisterTemplate,
+  printTemplate,
+  addPrintJobListener,
+
   showPrinterStatus,
+  getPrinterStatus,
+  startStatusMonitor,
+  stopStatusMonitor,
+  addPrinterStatusListener,
 };